@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.benchmarks;
+
+import java.io.Writer;
+
+/**
+ * Counts the written characters instead of keeping them, so the benchmarks
+ * of the outputs measure the serialization only.
+ */
+final class CountingWriter extends Writer {
+
+    private long count;
+
+    @Override
+    public void write(int c) {
+        count++;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        count += len;
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        count += len;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    long getCount() {
+        return count;
+    }
+}
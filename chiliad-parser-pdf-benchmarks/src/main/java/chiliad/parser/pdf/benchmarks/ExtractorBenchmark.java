@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.benchmarks;
+
+import chiliad.parser.pdf.extractor.ContentStreamExtractor;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.extractor.vectorgraphics.SVGBasedExtractor;
+import chiliad.parser.pdf.model.MPage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Extraction of one page of the test document or of a generated document
+ * by one extractor, the document is loaded once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// the extractors log every rotated glyph on the info level
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ExtractorBenchmark {
+
+    @Param({"dell", "synthetic"})
+    public String input;
+
+    @Param({"text", "image", "svg"})
+    public String extractor;
+
+    @Param({"1", "2", "3"})
+    public int page;
+
+    private PDDocument document;
+    private PDPage pdPage;
+    private ContentStreamExtractor pageExtractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        document = "dell".equals(input) ? TestDocuments.loadDell() : TestDocuments.generateSynthetic();
+        @SuppressWarnings("unchecked")
+        List<PDPage> pages = document.getDocumentCatalog().getAllPages();
+        pdPage = pages.get(page - 1);
+        pageExtractor = newExtractor();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Benchmark
+    public MPage extract() {
+        PDRectangle mediaBox = pdPage.findMediaBox();
+        MPage content = MPage.newInstance(input, page, (double) mediaBox.getWidth(), (double) mediaBox.getHeight());
+        content = pageExtractor.extract(pdPage, content);
+        pageExtractor.reset();
+        return content;
+    }
+
+    private ContentStreamExtractor newExtractor() throws IOException {
+        switch (extractor) {
+            case "text":
+                return new TextExtractor();
+            case "image":
+                return new ImageExtractor();
+            case "svg":
+                return new SVGBasedExtractor();
+            default:
+                throw new IllegalArgumentException("Unknown extractor: " + extractor);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.benchmarks;
+
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.output.HTMLOutput;
+import chiliad.parser.pdf.output.JSONOutput;
+import chiliad.parser.pdf.output.ParserOutputWriter;
+import chiliad.parser.pdf.output.PlainStringOutput;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes already extracted pages (a document of them per operation) into
+ * each output format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputBenchmark {
+
+    @Param({"json", "html", "plain"})
+    public String format;
+
+    /**
+     * dell: pages 1-3 of the test document, synthetic: 10 text heavy pages.
+     */
+    @Param({"dell", "synthetic"})
+    public String input;
+
+    private List<MPage> pages;
+
+    @Setup
+    public void setUp() throws IOException {
+        pages = "dell".equals(input)
+                ? TestDocuments.extractDell(PageSet.range(1, 3))
+                : SyntheticPages.create(42, 10, 2000, 2, 200);
+    }
+
+    @Benchmark
+    public long write() {
+        CountingWriter writer = new CountingWriter();
+        ParserOutputWriter output = newOutput(writer);
+        output.startDocument(null);
+        for (MPage page : pages) {
+            output.startPage(null);
+            output.processPageContent(page);
+            output.endPage(null);
+        }
+        output.endDocument(null);
+        return writer.getCount();
+    }
+
+    private ParserOutputWriter newOutput(Writer writer) {
+        switch (format) {
+            case "json":
+                return new JSONOutput(writer);
+            case "html":
+                return new HTMLOutput(writer);
+            case "plain":
+                return new PlainStringOutput(writer);
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + format);
+        }
+    }
+}
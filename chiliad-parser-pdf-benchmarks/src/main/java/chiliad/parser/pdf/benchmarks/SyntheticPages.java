@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.benchmarks;
+
+import chiliad.parser.pdf.model.MImage;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import chiliad.parser.pdf.model.MVectorGraphics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Extracted pages with generated content, the same for the same arguments.
+ * The words, fonts and colors are repeated like in a real document, so the
+ * outputs see realistic string and color reuse.
+ */
+public final class SyntheticPages {
+
+    private static final String[] WORDS = {"the", "parser", "extracts", "positioned", "tokens", "from", "a",
+        "content", "stream", "of", "PDF", "page", "2015", "Dell", "PowerEdge", "R720", "server", "memory",
+        "&", "<tag>", "\"quoted\"", "Ünïcödé"};
+    private static final String[] FONTS = {"Helvetica", "Helvetica-Bold", "Times-Roman", "Courier"};
+    private static final int[] COLORS = {0xFF000000, 0xFF1F497D, 0xFFC0504D, 0xFF808080};
+
+    private SyntheticPages() {
+    }
+
+    /**
+     * @param seed
+     * @param numberOfPages
+     * @param tokensPerPage
+     * @param imagesPerPage
+     * @param pathsPerPage Number of the SVG paths of a page.
+     * @return The generated pages.
+     */
+    public static List<MPage> create(long seed, int numberOfPages, int tokensPerPage, int imagesPerPage, int pathsPerPage) {
+        Random random = new Random(seed);
+        List<MPage> pages = new ArrayList<>(numberOfPages);
+        for (int p = 1; p <= numberOfPages; p++) {
+            MPage page = MPage.newInstance("synthetic.pdf", p, 612d, 792d);
+            for (int i = 0; i < tokensPerPage; i++) {
+                page.add(token(random, i));
+            }
+            for (int i = 0; i < imagesPerPage; i++) {
+                page.add(image(random, i));
+            }
+            page.setVectorGraphics(vectorGraphics(random, pathsPerPage));
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    private static MToken token(Random random, int index) {
+        MToken token = new MToken();
+        String font = FONTS[random.nextInt(FONTS.length)];
+        token.setText(WORDS[random.nextInt(WORDS.length)]);
+        token.setFontName(font);
+        token.setFontFamily(font.split("-")[0]);
+        token.setFontSizeInPt((double) (8 + random.nextInt(4) * 2));
+        token.setFontWeight(font.endsWith("Bold") ? 700d : 400d);
+        token.setStrokingArgb(COLORS[0]);
+        token.setNonStrokingArgb(COLORS[random.nextInt(COLORS.length)]);
+        token.setX(36d + (index % 8) * 68 + random.nextInt(10));
+        token.setY(36d + (index / 8) * 12 % 720);
+        token.setWidth(20d + random.nextInt(40));
+        token.setHeight(token.getFontSizeInPt());
+        return token;
+    }
+
+    private static MImage image(Random random, int index) {
+        MImage image = new MImage();
+        image.setImageName("Im" + index);
+        image.setX((double) random.nextInt(400));
+        image.setY((double) random.nextInt(600));
+        image.setWidth(50d + random.nextInt(150));
+        image.setHeight(50d + random.nextInt(150));
+        byte[] bytes = new byte[4096 + random.nextInt(16384)];
+        random.nextBytes(bytes);
+        image.setImageBytes(bytes);
+        return image;
+    }
+
+    private static MVectorGraphics vectorGraphics(Random random, int paths) {
+        StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"612\" height=\"792\">");
+        for (int i = 0; i < paths; i++) {
+            svg.append("<path style=\"fill:none; stroke:rgb(")
+                    .append(random.nextInt(256)).append(',').append(random.nextInt(256)).append(",0);\" d=\"M")
+                    .append(random.nextInt(612)).append(' ').append(random.nextInt(792)).append(" L")
+                    .append(random.nextInt(612)).append(' ').append(random.nextInt(792)).append(" Z\"/>");
+        }
+        svg.append("</svg>");
+        MVectorGraphics vectorGraphics = new MVectorGraphics();
+        vectorGraphics.setSvgContent(svg.toString());
+        return vectorGraphics;
+    }
+}
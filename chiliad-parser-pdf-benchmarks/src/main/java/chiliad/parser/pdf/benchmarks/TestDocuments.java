@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.benchmarks;
+
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.extractor.vectorgraphics.SVGBasedExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.output.EmptyOutput;
+import chiliad.parser.pdf.synthetic.SyntheticDocumentGenerator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * The inputs of the benchmarks taken from the test document of the parser,
+ * or generated.
+ */
+public final class TestDocuments {
+
+    public static final String DELL = "dell-test-pages.pdf";
+
+    private TestDocuments() {
+    }
+
+    public static PDDocument loadDell() throws IOException {
+        try (InputStream in = TestDocuments.class.getClassLoader().getResourceAsStream(DELL)) {
+            if (in == null) {
+                throw new IOException("Missing benchmark document: " + DELL);
+            }
+            return PDDocument.load(in);
+        }
+    }
+
+    /**
+     * @return Three pages of 5000 glyphs in 4 fonts, 4 images, 500 path
+     * segments, 2 inline images and 3 nested forms.
+     * @throws IOException
+     */
+    public static PDDocument generateSynthetic() throws IOException {
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator();
+        generator.setSeed(42);
+        generator.setPages(3);
+        generator.setGlyphsPerPage(5000);
+        generator.setFonts(4);
+        generator.setImagesPerPage(4);
+        generator.setImageSize(128);
+        generator.setPathSegmentsPerPage(500);
+        generator.setInlineImagesPerPage(2);
+        generator.setFormDepth(3);
+        return generator.generate();
+    }
+
+    /**
+     * @param pages
+     * @return The pages of the test document extracted with every extractor.
+     * @throws IOException
+     */
+    public static List<MPage> extractDell(PageSet pages) throws IOException {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource(DELL), new EmptyOutput(),
+                new TextExtractor(), new ImageExtractor(), new SVGBasedExtractor());
+        parser.setPages(pages);
+        try {
+            return parser.stream().collect(Collectors.toList());
+        } finally {
+            parser.shutDown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor.text;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.util.TextPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Line grouping and tokenization of the text positions of a page, the
+ * positions are added once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// the extractors log every rotated glyph on the info level
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class TextPositionProcessorBenchmark {
+
+    /**
+     * dell1, dell2: pages of the test document, synthetic: 60 lines of 12
+     * shuffled words.
+     */
+    @Param({"dell1", "dell2", "synthetic"})
+    public String input;
+
+    @Param({"0", "0.5"})
+    public float lineTolerance;
+
+    private final TextPositionProcessor processor = new TextPositionProcessor();
+
+    @Setup
+    public void setUp() throws IOException {
+        List<TextPosition> positions = input.startsWith("dell")
+                ? TextPositions.recordDell(Integer.parseInt(input.substring(4)))
+                : TextPositions.synthetic(42, 60, 12);
+        processor.setLineTolerance(lineTolerance);
+        for (TextPosition position : positions) {
+            processor.add(position, 0xFF000000, 0xFF000000);
+        }
+    }
+
+    @Benchmark
+    public List<Token> process() {
+        return processor.process();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor.text;
+
+import chiliad.parser.pdf.benchmarks.TestDocuments;
+import chiliad.parser.pdf.model.MPage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.TextPosition;
+
+/**
+ * The text positions fed into the {@link TextPositionProcessor} by the
+ * benchmarks, recorded from the test document or generated.
+ */
+final class TextPositions {
+
+    private static final float PAGE_WIDTH = 612;
+    private static final float PAGE_HEIGHT = 792;
+    private static final float FONT_SIZE = 10;
+    private static final float GLYPH_WIDTH = 5;
+    private static final PDPage PAGE = new PDPage(new PDRectangle(PAGE_WIDTH, PAGE_HEIGHT));
+    private static final PDFont[] FONTS = {PDType1Font.HELVETICA, PDType1Font.HELVETICA_BOLD};
+
+    private TextPositions() {
+    }
+
+    /**
+     * @param pageNumber
+     * @return The text positions of the page in content stream order.
+     * @throws IOException
+     */
+    static List<TextPosition> recordDell(int pageNumber) throws IOException {
+        try (PDDocument document = TestDocuments.loadDell()) {
+            PDPage page = (PDPage) document.getDocumentCatalog().getAllPages().get(pageNumber - 1);
+            RecordingTextExtractor extractor = new RecordingTextExtractor();
+            extractor.extract(page, MPage.newInstance(TestDocuments.DELL, pageNumber, 0d, 0d));
+            return extractor.positions;
+        }
+    }
+
+    /**
+     * Lines of words on a page; the words are shuffled within the page, like
+     * the text of a multi column layout in content stream order.
+     *
+     * @param seed
+     * @param lines
+     * @param wordsPerLine
+     * @return The generated text positions.
+     */
+    static List<TextPosition> synthetic(long seed, int lines, int wordsPerLine) {
+        Random random = new Random(seed);
+        List<List<TextPosition>> words = new ArrayList<>();
+        for (int line = 0; line < lines; line++) {
+            float y = 36 + (line * 12) % (PAGE_HEIGHT - 72);
+            float x = 36;
+            for (int w = 0; w < wordsPerLine; w++) {
+                int length = 2 + random.nextInt(8);
+                PDFont font = FONTS[random.nextInt(FONTS.length)];
+                List<TextPosition> word = new ArrayList<>(length);
+                for (int c = 0; c < length; c++) {
+                    word.add(glyph(x, y, (char) ('a' + random.nextInt(26)), font));
+                    x += GLYPH_WIDTH;
+                }
+                words.add(word);
+                x += GLYPH_WIDTH * 2;
+            }
+        }
+        Collections.shuffle(words, random);
+        List<TextPosition> positions = new ArrayList<>();
+        words.forEach(positions::addAll);
+        return positions;
+    }
+
+    /**
+     * @param length
+     * @return Adjacent glyphs of one word.
+     */
+    static List<TextPosition> word(int length) {
+        List<TextPosition> positions = new ArrayList<>(length);
+        for (int c = 0; c < length; c++) {
+            positions.add(glyph(36 + c * GLYPH_WIDTH, 100, (char) ('a' + c % 26), PDType1Font.HELVETICA));
+        }
+        return positions;
+    }
+
+    private static TextPosition glyph(float x, float y, char c, PDFont font) {
+        return new TextPosition(PAGE, Matrix.getTranslatingInstance(x, y), Matrix.getTranslatingInstance(x + GLYPH_WIDTH, y),
+                FONT_SIZE, new float[]{GLYPH_WIDTH}, GLYPH_WIDTH, String.valueOf(c), font, FONT_SIZE, (int) FONT_SIZE, 0);
+    }
+
+    private static final class RecordingTextExtractor extends TextExtractor {
+
+        private final List<TextPosition> positions = new ArrayList<>();
+
+        RecordingTextExtractor() throws IOException {
+        }
+
+        @Override
+        protected void processTextPosition(TextPosition tp) {
+            if (tp.getWidth() != 0) {
+                positions.add(tp);
+            }
+            super.processTextPosition(tp);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor.text;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.util.TextPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a token of adjacent glyphs, every {@link Token#accept(int)}
+ * succeeds. The 10000 glyphs are a long line without gaps, where the cost of
+ * a token growing with its length would show.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+
+    @Param({"8", "64", "512", "10000"})
+    public int glyphs;
+
+    private final GlyphBuffer buffer = new GlyphBuffer();
+
+    @Setup
+    public void setUp() {
+        List<TextPosition> word = TextPositions.word(glyphs);
+        for (TextPosition position : word) {
+            buffer.add(position, 0xFF000000, 0xFF000000);
+        }
+    }
+
+    @Benchmark
+    public Token accept() {
+        Token token = new Token(buffer, 0);
+        for (int glyph = 1; glyph < glyphs; glyph++) {
+            if (!token.accept(glyph)) {
+                throw new IllegalStateException("Glyph " + glyph + " is not adjacent.");
+            }
+        }
+        return token;
+    }
+}
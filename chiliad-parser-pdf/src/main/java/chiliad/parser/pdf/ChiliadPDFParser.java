@@ -15,43 +15,116 @@
  */
 package chiliad.parser.pdf;
 
+import chiliad.parser.pdf.cache.PageCache;
+import chiliad.parser.pdf.capture.SlowPage;
+import chiliad.parser.pdf.capture.SlowPageCapture;
+import chiliad.parser.pdf.extractor.ColorCache;
+import chiliad.parser.pdf.extractor.FontRegistry;
+import chiliad.parser.pdf.extractor.PageBudget;
 import chiliad.parser.pdf.extractor.PageExtractor;
 import chiliad.parser.pdf.input.PDFSource;
+import chiliad.parser.pdf.jfr.DocumentLoadEvent;
+import chiliad.parser.pdf.jfr.OutputWriteEvent;
+import chiliad.parser.pdf.jfr.PageExtractEvent;
+import chiliad.parser.pdf.metrics.OperatorProfiler;
+import chiliad.parser.pdf.metrics.ParserMetrics;
 import chiliad.parser.pdf.model.MPage;
 import chiliad.parser.pdf.output.ParserOutputWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Iterator;
-import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import org.apache.pdfbox.exceptions.CryptographyException;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.common.COSObjectable;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ChiliadPDFParser implements PDFParser {
+/**
+ * Parses the pages of a document with the extractors.
+ *
+ * The pages are either pushed to the output writer by {@link #parse()}, or
+ * pulled one by one through {@link #iterator()}, {@link #stream()} or
+ * {@link #publisher(Executor)}. In the pull mode the output writer is not used
+ * (e.g. {@link chiliad.parser.pdf.output.EmptyOutput} can be given), a page is
+ * extracted when it is requested, and the pages are extracted sequentially
+ * regardless of the number of workers.
+ */
+public class ChiliadPDFParser implements PDFParser, Iterable<MPage> {
 
     final static Logger LOG = LoggerFactory.getLogger(ChiliadPDFParser.class);
 
     private final PDFSource source;
     private final ParserOutputWriter output;
     private final PageExtractor[] extractors;
+    private final Supplier<PageExtractor[]> extractorFactory;
 
     private int startPage = 1;
     private int endPage = 1;
+    private PageSet pages;
+    private int workers = 1;
+    private boolean ordered = true;
     private PDDocument doc;
+    private PageIndex pageIndex;
+    private PageCache pageCache;
+    private String documentHash;
+    private String fingerprint;
+    /**
+     * Cache hits of the pages to parse, when some of them are missing.
+     */
+    private Map<Integer, MPage> cachedPages = new HashMap<>();
+    private long pageTimeout = PageBudget.UNLIMITED;
+    private long maxOperators = PageBudget.UNLIMITED;
+    private int maxXObjectDepth = (int) PageBudget.UNLIMITED;
+    private volatile boolean cancelled;
+    private ParserMetrics metrics = ParserMetrics.NOOP;
+    private OperatorProfiler operatorProfiler;
+    private SlowPageCapture slowPageCapture;
 
     public ChiliadPDFParser(PDFSource source, ParserOutputWriter output, PageExtractor... extractors) {
+        this(source, output, extractors, null);
+    }
+
+    /**
+     * The factory is called once for every worker, so each of them gets its
+     * own (stateful) extractor instances.
+     *
+     * @param source
+     * @param output
+     * @param extractorFactory
+     */
+    public ChiliadPDFParser(PDFSource source, ParserOutputWriter output, Supplier<PageExtractor[]> extractorFactory) {
+        this(source, output, extractorFactory.get(), extractorFactory);
+    }
+
+    private ChiliadPDFParser(PDFSource source, ParserOutputWriter output, PageExtractor[] extractors, Supplier<PageExtractor[]> extractorFactory) {
         this.source = source;
         this.extractors = extractors;
+        this.extractorFactory = extractorFactory;
         this.output = output;
     }
 
     protected PDDocument loadDocument() {
         try {
+            DocumentLoadEvent event = new DocumentLoadEvent();
+            event.begin();
+            long start = System.nanoTime();
             this.doc = source.loadDocument();
+            metrics.recordTime("document.load", System.nanoTime() - start);
+            event.commit(source.getId());
+            this.pageIndex = null;
             return doc;
         } catch (IOException ex) {
             LOG.error("Exception while loading document {}.", ex, source);
@@ -63,42 +136,144 @@ public class ChiliadPDFParser implements PDFParser {
         if (doc == null) {
             loadDocument();
         }
-        List<COSObjectable> pages = doc.getDocumentCatalog().getAllPages();
-        Iterator<COSObjectable> pageIter = pages.iterator();
-        int currentPageNumber = 0;
-        while (pageIter.hasNext()) {
-            currentPageNumber++;
-            PDPage currentPage = (PDPage) pageIter.next();
-            if (currentPageNumber == pageNumber) {
-                return currentPage;
-            }
-        }
-        throw new IllegalStateException("Page " + currentPageNumber + " does not exists!");
+        return getPageIndex().getPage(pageNumber);
     }
 
+    /**
+     * With a page cache the pages are looked up first. If every page is
+     * cached they are written without loading the document, the pdfbox
+     * objects given to the output are null then. When the parsing fails the
+     * output is aborted instead of ended.
+     */
     @Override
     public void parse() {
+        boolean ended = false;
+        try {
+            parseDocument();
+            ended = true;
+        } finally {
+            if (!ended) {
+                output.abort();
+            }
+        }
+    }
+
+    private void parseDocument() {
+        boolean cacheLookedUp = false;
+        if (pageCache != null && doc == null && getDocumentHash() != null) {
+            Integer numberOfPages = pageCache.getNumberOfPages(getDocumentHash());
+            if (numberOfPages != null) {
+                cacheLookedUp = true;
+                int[] pageNumbers = getPages().resolve(numberOfPages);
+                if (lookUpCachedPages(pageNumbers)) {
+                    replayCachedPages(pageNumbers);
+                    return;
+                }
+            }
+        }
         if (doc == null) {
             loadDocument();
         }
+        if (pageCache != null && getDocumentHash() != null) {
+            pageCache.putNumberOfPages(getDocumentHash(), getPageIndex().getNumberOfPages());
+            if (!cacheLookedUp && workers <= 1) {
+                lookUpCachedPages(getPages().resolve(getPageIndex().getNumberOfPages()));
+            }
+        }
         startDocument(doc);
 
-        if (doc.isEncrypted()) {
+        prepareDocument();
+        processPages(doc);
+        endDocument(doc);
+    }
+
+    /**
+     * Lazy iteration of the selected pages. The document is loaded by this
+     * call, a page is extracted by {@link Iterator#next()}.
+     *
+     * @return Iterator of the extracted pages.
+     */
+    @Override
+    public Iterator<MPage> iterator() {
+        if (doc == null) {
+            loadDocument();
+        }
+        prepareDocument();
+        return new PageIterator(this, getPages().resolve(getPageIndex().getNumberOfPages()));
+    }
+
+    /**
+     * Sequential, lazy stream of the selected pages, see {@link #iterator()}.
+     * The parser is shut down when the stream is closed.
+     *
+     * @return Stream of the extracted pages.
+     */
+    public Stream<MPage> stream() {
+        PageIterator pageIterator = (PageIterator) iterator();
+        Spliterator<MPage> spliterator = Spliterators.spliterator(pageIterator, pageIterator.remaining(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::shutDown);
+    }
+
+    /**
+     * Publisher of the selected pages for one subscriber. A page is extracted
+     * on the executor when the subscriber has requested it; the document is
+     * loaded at the first request. The parser is shut down when the pages
+     * are completed, on an error and when the subscription is cancelled.
+     *
+     * @param executor
+     * @return Publisher of the extracted pages.
+     */
+    public Flow.Publisher<MPage> publisher(Executor executor) {
+        return new PagePublisher(this::iterator, executor, this::shutDown);
+    }
+
+    private void prepareDocument() {
+        decrypt(doc);
+        shareDocumentCaches(extractors, new FontRegistry(), new ColorCache());
+        shareMetrics(extractors);
+    }
+
+    static void decrypt(PDDocument document) {
+        // the non-sequential parser decrypts while loading and sets the security handler
+        if (document.isEncrypted() && document.getSecurityHandler() == null) {
             try {
                 // We are expecting non-encrypted documents here, but it is common
                 // for users to pass in a document that is encrypted with an empty
                 // password (such a document appears to not be encrypted by
                 // someone viewing the document, thus the confusion).  We will
                 // attempt to decrypt with the empty password to handle this case.
-                doc.decrypt("");
+                document.decrypt("");
             } catch (CryptographyException ex) {
                 java.util.logging.Logger.getLogger(ChiliadPDFParser.class.getName()).log(Level.SEVERE, null, ex);
             } catch (IOException ex) {
                 java.util.logging.Logger.getLogger(ChiliadPDFParser.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
-        processPages(doc);
-        endDocument(doc);
+    }
+
+    /**
+     * The fonts and colors are resolved once per document, the extractors of
+     * a document share its font registry and color cache.
+     *
+     * @param pageExtractors
+     * @param fontRegistry
+     * @param colorCache
+     */
+    static void shareDocumentCaches(PageExtractor[] pageExtractors, FontRegistry fontRegistry, ColorCache colorCache) {
+        for (PageExtractor extractor : pageExtractors) {
+            extractor.setFontRegistry(fontRegistry);
+            extractor.setColorCache(colorCache);
+        }
+    }
+
+    void shareMetrics(PageExtractor[] pageExtractors) {
+        for (PageExtractor extractor : pageExtractors) {
+            extractor.setMetrics(metrics);
+            if (operatorProfiler != null) {
+                extractor.setOperatorProfiler(operatorProfiler);
+            }
+        }
     }
 
     /**
@@ -121,6 +296,148 @@ public class ChiliadPDFParser implements PDFParser {
         this.endPage = aPageNumber;
     }
 
+    /**
+     * The pages to parse, takes precedence over the start and end page. The
+     * pages out of the set are not loaded.
+     *
+     * @param pages
+     */
+    @Override
+    public void setPages(PageSet pages) {
+        this.pages = pages;
+    }
+
+    /**
+     * @return The page set, or the pages from the start to the end page, none
+     * if the end page is before the start page.
+     */
+    private PageSet getPages() {
+        if (pages != null) {
+            return pages;
+        }
+        int first = Math.max(startPage, 1);
+        return first <= endPage ? PageSet.range(first, endPage) : PageSet.of();
+    }
+
+    /**
+     * Number of threads extracting pages concurrently. With more than one
+     * worker the parser has to be created with an extractor factory, every
+     * worker opens its own copy of the document.
+     *
+     * @param workers
+     */
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be positive: " + workers);
+        }
+        if (workers > 1 && extractorFactory == null) {
+            throw new IllegalStateException("Parallel extraction needs an extractor factory.");
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * In unordered mode the pages are written as soon as they are extracted,
+     * the reorder buffer is skipped. Only relevant with more than one worker.
+     *
+     * @param ordered
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Parsed pages are taken from and stored into the cache, see
+     * {@link #parse()}. With more than one worker only a completely cached
+     * page set is used.
+     *
+     * @param pageCache
+     */
+    public void setPageCache(PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+
+    /**
+     * Maximal extraction time of a page, the rest of a page taking longer is
+     * skipped and the page is marked as truncated.
+     *
+     * @param pageTimeout Milliseconds, negative for no limit.
+     */
+    public void setPageTimeout(long pageTimeout) {
+        this.pageTimeout = pageTimeout;
+    }
+
+    /**
+     * Maximal number of content stream operators of a page, counted over
+     * every extractor, the rest of the page is skipped and the page is marked
+     * as truncated.
+     *
+     * @param maxOperators Negative for no limit.
+     */
+    public void setMaxOperators(long maxOperators) {
+        this.maxOperators = maxOperators;
+    }
+
+    /**
+     * Maximal nesting of forms, deeper forms are skipped and the page is
+     * marked as truncated.
+     *
+     * @param maxXObjectDepth 0 skips every form, negative for no limit.
+     */
+    public void setMaxXObjectDepth(int maxXObjectDepth) {
+        this.maxXObjectDepth = maxXObjectDepth;
+    }
+
+    /**
+     * Receives the timings of the document loading, the extractors and the
+     * output, the counters of the pages and the measurements of the
+     * extractors. Nothing is measured by default.
+     *
+     * @param metrics
+     */
+    public void setMetrics(ParserMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    ParserMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Measures every content stream operator of the extractors, of every
+     * worker. Profiling slows down the extraction, it is off by default.
+     *
+     * @param operatorProfiler
+     */
+    public void setOperatorProfiler(OperatorProfiler operatorProfiler) {
+        this.operatorProfiler = operatorProfiler;
+    }
+
+    /**
+     * Saves the pages exceeding the thresholds of the capture, with their
+     * timings and the settings of the extraction. Nothing is captured by
+     * default.
+     *
+     * @param slowPageCapture
+     */
+    public void setSlowPageCapture(SlowPageCapture slowPageCapture) {
+        this.slowPageCapture = slowPageCapture;
+    }
+
+    /**
+     * Stops the parsing, can be called from any thread. The page being
+     * extracted is completed as truncated, the remaining pages are skipped
+     * and the document is ended as usual.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
     @Override
     public void shutDown() {
         if (doc != null) {
@@ -133,36 +450,221 @@ public class ChiliadPDFParser implements PDFParser {
     }
 
     private void processPages(PDDocument doc) {
-        List<COSObjectable> pages = doc.getDocumentCatalog().getAllPages();
-        Iterator<COSObjectable> pageIter = pages.iterator();
-        int currentPageNumber = 1;
-        while (pageIter.hasNext()) {
-            PDPage currentPage = (PDPage) pageIter.next();
-            if (isCurrentPageBetweenStartAndEnd(currentPageNumber)) {
-                processPage(currentPageNumber, currentPage);
+        int[] pageNumbers = getPages().resolve(getPageIndex().getNumberOfPages());
+        if (workers > 1) {
+            cachedPages.clear();
+            new ParallelPageProcessor(this, workers, ordered).process(pageNumbers);
+            return;
+        }
+        for (int pageNumber : pageNumbers) {
+            if (cancelled) {
+                LOG.info("Parsing of {} cancelled.", source.getId());
+                break;
             }
-            currentPageNumber++;
+            processPage(pageNumber, getPageIndex().getPage(pageNumber));
         }
     }
 
-    private boolean isCurrentPageBetweenStartAndEnd(int currentPageNumber) {
-        return currentPageNumber >= startPage && currentPageNumber <= endPage;
-    }
-
     private void processPage(int currentPageNumber, PDPage page) {
         startPage(page);
+        MPage pageContent = cachedPages.remove(currentPageNumber);
+        if (pageContent != null) {
+            metrics.count("pages.cached", 1);
+        } else {
+            pageContent = extractPage(extractors, currentPageNumber, page);
+            cachePage(pageContent);
+        }
+        writePageContent(pageContent);
+        endPage(page);
+    }
+
+    /**
+     * Keeps the cached pages for the parsing.
+     *
+     * @param pageNumbers
+     * @return True if every page is cached.
+     */
+    private boolean lookUpCachedPages(int[] pageNumbers) {
+        for (int pageNumber : pageNumbers) {
+            MPage page = pageCache.get(getDocumentHash(), getFingerprint(), pageNumber);
+            if (page != null) {
+                page.setSourceId(source.getId());
+                cachedPages.put(pageNumber, page);
+            }
+        }
+        return cachedPages.size() == pageNumbers.length;
+    }
+
+    private void replayCachedPages(int[] pageNumbers) {
+        startDocument(null);
+        for (int pageNumber : pageNumbers) {
+            if (cancelled) {
+                break;
+            }
+            metrics.count("pages.cached", 1);
+            startPage(null);
+            writePageContent(cachedPages.remove(pageNumber));
+            endPage(null);
+        }
+        endDocument(null);
+    }
+
+    private void cachePage(MPage pageContent) {
+        // a truncated page depends on the budget and the speed of the machine
+        if (pageCache != null && !pageContent.isTruncated() && getDocumentHash() != null) {
+            pageCache.put(getDocumentHash(), getFingerprint(), pageContent);
+        }
+    }
+
+    /**
+     * @return Hash of the document content, null if the source does not
+     * provide the content.
+     */
+    private String getDocumentHash() {
+        if (documentHash == null) {
+            try (InputStream content = source.openContent()) {
+                if (content != null) {
+                    documentHash = PageCache.hash(content);
+                }
+            } catch (IOException ex) {
+                LOG.warn("Failed to read the content of {}, the pages are not cached.", source.getId(), ex);
+                pageCache = null;
+            }
+        }
+        return documentHash;
+    }
+
+    private String getFingerprint() {
+        if (fingerprint == null) {
+            StringBuilder sb = new StringBuilder();
+            for (PageExtractor extractor : extractors) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(extractor.getFingerprint());
+            }
+            fingerprint = sb.toString();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Runs the extractors on the page within a new page budget and resets
+     * them afterwards.
+     *
+     * @param pageExtractors
+     * @param pageNumber
+     * @param page
+     * @return The extracted content of the page.
+     */
+    MPage extractPage(PageExtractor[] pageExtractors, int pageNumber, PDPage page) {
         PDRectangle mediaBox = page.findMediaBox();
-        MPage pageContent = MPage.newInstance(source.getId(), currentPageNumber, (double) mediaBox.getWidth(), (double) mediaBox.getHeight());
+        MPage pageContent = MPage.newInstance(source.getId(), pageNumber, (double) mediaBox.getWidth(), (double) mediaBox.getHeight());
 
-        for (PageExtractor extractor : extractors) {
+        PageBudget budget = new PageBudget(pageTimeout, maxOperators, maxXObjectDepth, this::isCancelled);
+        for (PageExtractor extractor : pageExtractors) {
+            extractor.setPageBudget(budget);
+        }
+        SlowPage slowPage = slowPageCapture != null ? new SlowPage(source.getId(), pageNumber) : null;
+        long allocationStart = slowPage != null && slowPageCapture.isMeasuringAllocation() ? getAllocatedBytes() : SlowPageCapture.UNLIMITED;
+        long pageStart = System.nanoTime();
+        for (PageExtractor extractor : pageExtractors) {
+            PageExtractEvent event = new PageExtractEvent();
+            event.begin();
+            long start = System.nanoTime();
             pageContent = extractor.extract(page, pageContent);
+            long nanos = System.nanoTime() - start;
+            metrics.recordTime("extractor." + extractor.getClass().getSimpleName(), nanos);
+            event.commit(pageNumber, extractor.getClass().getSimpleName());
+            if (slowPage != null) {
+                slowPage.addExtractorNanos(extractor.getClass().getSimpleName(), nanos);
+            }
         }
-        writePageContent(pageContent);
-        for (PageExtractor extractor : extractors) {
+        for (PageExtractor extractor : pageExtractors) {
             extractor.reset();
+            extractor.setPageBudget(null);
+        }
+        long pageNanos = System.nanoTime() - pageStart;
+        metrics.recordTime("page.extract", pageNanos);
+        metrics.count("pages.extracted", 1);
+        if (budget.getTruncation() != null) {
+            metrics.count("pages.truncated." + budget.getTruncation().getName(), 1);
+            LOG.warn("Page {} of {} is truncated: {}", pageNumber, source.getId(), budget.getTruncation().getName());
+            pageContent.setTruncation(budget.getTruncation().getName());
         }
+        if (slowPage != null) {
+            long allocatedBytes = allocationStart == SlowPageCapture.UNLIMITED ? SlowPageCapture.UNLIMITED : getAllocatedBytes() - allocationStart;
+            if (slowPageCapture.isSlow(pageNanos, allocatedBytes)) {
+                capturePage(page, slowPage, pageNanos, allocatedBytes, pageContent.getTruncation());
+            }
+        }
+        return pageContent;
+    }
+
+    private void capturePage(PDPage page, SlowPage slowPage, long pageNanos, long allocatedBytes, String truncation) {
+        slowPage.setNanos(pageNanos);
+        slowPage.setAllocatedBytes(allocatedBytes);
+        slowPage.setTruncation(truncation);
+        slowPage.putSetting("extractors", getFingerprint());
+        slowPage.putSetting("pageTimeout", pageTimeout);
+        slowPage.putSetting("maxOperators", maxOperators);
+        slowPage.putSetting("maxXObjectDepth", maxXObjectDepth);
+        slowPage.putSetting("workers", workers);
+        if (slowPageCapture.capture(page, slowPage)) {
+            metrics.count("pages.captured", 1);
+        }
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far, -1 if the JVM
+     * does not measure it.
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return SlowPageCapture.UNLIMITED;
+    }
+
+    /**
+     * Writes an already extracted page, used when the extraction happened on
+     * another thread.
+     *
+     * @param page
+     * @param pageContent
+     */
+    void writePage(PDPage page, MPage pageContent) {
+        cachePage(pageContent);
+        startPage(page);
+        writePageContent(pageContent);
         endPage(page);
+    }
 
+    PDDocument getDocument() {
+        return doc;
+    }
+
+    /**
+     * @return The page index of the document, built at the first use.
+     */
+    PageIndex getPageIndex() {
+        if (pageIndex == null) {
+            pageIndex = new PageIndex(doc);
+        }
+        return pageIndex;
+    }
+
+    PDFSource getSource() {
+        return source;
+    }
+
+    PageExtractor[] getExtractors() {
+        return extractors;
+    }
+
+    Supplier<PageExtractor[]> getExtractorFactory() {
+        return extractorFactory;
     }
 
     private void startDocument(PDDocument document) {
@@ -174,7 +676,14 @@ public class ChiliadPDFParser implements PDFParser {
     }
 
     private void writePageContent(MPage pageContent) {
+        OutputWriteEvent event = new OutputWriteEvent();
+        event.begin();
+        long start = System.nanoTime();
         output.processPageContent(pageContent);
+        metrics.recordTime("output.write", System.nanoTime() - start);
+        if (event.isEnabled()) {
+            event.commit(pageContent.getPageNumber() == null ? 0 : pageContent.getPageNumber(), output.getClass().getSimpleName());
+        }
     }
 
     private void endPage(PDPage page) {
@@ -15,12 +15,20 @@
  */
 package chiliad.parser.pdf;
 
+import chiliad.parser.pdf.cache.PageCache;
+import chiliad.parser.pdf.capture.SlowPageCapture;
 import chiliad.parser.pdf.cli.ParserCli;
 import chiliad.parser.pdf.cli.ParserCliException;
 import chiliad.parser.pdf.input.FileSource;
 import chiliad.parser.pdf.input.PDFSource;
+import chiliad.parser.pdf.metrics.MetricsRegistry;
+import chiliad.parser.pdf.metrics.OperatorProfiler;
 import chiliad.parser.pdf.output.ParserOutputWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,9 +43,33 @@ public class Main {
             if (args.length == 0 || commandLineParser.hasOptionHelp()) {
                 commandLineParser.showHelpMessage();
             } else {
+                PageCache pageCache = commandLineParser.getPageCache();
                 ChiliadPDFParser giskard = newInstance(commandLineParser);
+                giskard.setPageCache(pageCache);
+                SlowPageCapture slowPageCapture = commandLineParser.getSlowPageCapture();
+                giskard.setSlowPageCapture(slowPageCapture);
+                File metricsFile = commandLineParser.getMetricsFile();
+                MetricsRegistry metrics = metricsFile != null ? new MetricsRegistry() : null;
+                if (metrics != null) {
+                    giskard.setMetrics(metrics);
+                }
+                File operatorProfileFile = commandLineParser.getOperatorProfileFile();
+                OperatorProfiler operatorProfiler = operatorProfileFile != null ? new OperatorProfiler() : null;
+                giskard.setOperatorProfiler(operatorProfiler);
                 giskard.parse();
                 giskard.shutDown();
+                if (metrics != null) {
+                    writeMetrics(metrics, metricsFile);
+                }
+                if (operatorProfiler != null) {
+                    writeOperatorProfile(operatorProfiler, operatorProfileFile, commandLineParser.getPDFFile());
+                }
+                if (slowPageCapture != null && slowPageCapture.getCaptured() > 0) {
+                    LOG.info("Slow pages captured: {}, into {}.", slowPageCapture.getCaptured(), slowPageCapture.getDirectory());
+                }
+                if (pageCache != null) {
+                    LOG.info("Page cache hits: {}, misses: {}, size: {} bytes.", pageCache.getHits(), pageCache.getMisses(), pageCache.getSize());
+                }
             }
         } catch (ParserCliException ex) {
             commandLineParser.showHelpMessage();
@@ -45,15 +77,38 @@ public class Main {
         }
     }
 
+    private static void writeMetrics(MetricsRegistry metrics, File metricsFile) {
+        try (Writer writer = Files.newBufferedWriter(metricsFile.toPath(), StandardCharsets.UTF_8)) {
+            metrics.writeJson(writer);
+        } catch (IOException ex) {
+            LOG.error("Failed to write the metrics into {}.", metricsFile, ex);
+        }
+    }
+
+    private static void writeOperatorProfile(OperatorProfiler operatorProfiler, File operatorProfileFile, File pdfFile) {
+        try (Writer writer = Files.newBufferedWriter(operatorProfileFile.toPath(), StandardCharsets.UTF_8)) {
+            operatorProfiler.writeReport(writer, "Operator hotspots of " + pdfFile.getName());
+        } catch (IOException ex) {
+            LOG.error("Failed to write the operator profile into {}.", operatorProfileFile, ex);
+        }
+    }
+
     private static ChiliadPDFParser newInstance(ParserCli parserCli) {
         File pdfFile = parserCli.getPDFFile();
         Integer startPage = parserCli.getStartPage();
         Integer endPage = parserCli.getEndPage();
+        PageSet pages = parserCli.getPages();
         ParserOutputWriter outputWriter = parserCli.getOutputFormat();
-        PDFSource source = new FileSource(pdfFile);
-        ChiliadPDFParser giskard = new ChiliadPDFParser(source, outputWriter, parserCli.getExtractors());
+        PDFSource source = new FileSource(pdfFile, parserCli.getDocumentLoader());
+        ChiliadPDFParser giskard = new ChiliadPDFParser(source, outputWriter, parserCli::getExtractors);
         giskard.setStartPage(startPage);
         giskard.setEndPage(endPage);
+        giskard.setPages(pages);
+        giskard.setWorkers(parserCli.getWorkers());
+        giskard.setOrdered(!parserCli.isUnordered());
+        giskard.setPageTimeout(parserCli.getPageTimeout());
+        giskard.setMaxOperators(parserCli.getMaxOperators());
+        giskard.setMaxXObjectDepth(parserCli.getMaxXObjectDepth());
         return giskard;
     }
 }
@@ -28,6 +28,20 @@ public interface PDFParser {
      */
     void setStartPage(int startPage);
 
+    /**
+     * The pages to parse, instead of the range of the start and end page.
+     *
+     * @param pages
+     */
+    void setPages(PageSet pages);
+
+    /**
+     * Stops the parsing cooperatively, the page being extracted is completed
+     * as truncated and the remaining pages are skipped. Can be called from
+     * any thread.
+     */
+    void cancel();
+
     void shutDown();
 
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Random access to the pages of a document by page number.
+ *
+ * {@code getAllPages()} walks the whole page tree and creates every page. The
+ * index descends from the root of the page tree to the requested page using
+ * the page counts of the intermediate nodes. The first page index of the kids
+ * is computed once per visited node, and the found pages are kept, so a
+ * lookup is a binary search per tree level, and the subtrees of unselected
+ * pages are not visited.
+ *
+ * Falls back to the page list of pdfbox if the page counts of the tree are
+ * inconsistent. Not thread safe.
+ */
+final class PageIndex {
+
+    final static Logger LOG = LoggerFactory.getLogger(PageIndex.class);
+
+    private final PDDocument document;
+    private final COSDictionary root;
+    private final PDPage[] pages;
+    /**
+     * First page index (relative to the node) of the kids of the visited
+     * nodes, the last element is the number of pages under the node.
+     */
+    private final Map<COSDictionary, int[]> firstPageIndexes = new IdentityHashMap<>();
+    private List<?> allPages;
+
+    PageIndex(PDDocument document) {
+        this.document = document;
+        this.root = document.getDocumentCatalog().getPages().getDictionary();
+        this.pages = new PDPage[Math.max(0, document.getNumberOfPages())];
+    }
+
+    int getNumberOfPages() {
+        return pages.length;
+    }
+
+    /**
+     * @param pageNumber The page numbering starts by 1.
+     * @return The page.
+     */
+    PDPage getPage(int pageNumber) {
+        if (pageNumber < 1 || pageNumber > pages.length) {
+            throw new IllegalStateException("Page " + pageNumber + " does not exists!");
+        }
+        PDPage page = pages[pageNumber - 1];
+        if (page == null) {
+            page = findPage(pageNumber - 1);
+            pages[pageNumber - 1] = page;
+        }
+        return page;
+    }
+
+    private PDPage findPage(int pageIndex) {
+        COSDictionary node = root;
+        int remaining = pageIndex;
+        while (node != null) {
+            COSBase kids = node.getDictionaryObject(COSName.KIDS);
+            if (!(kids instanceof COSArray)) {
+                break;
+            }
+            int[] firstPages = firstPageIndexes.computeIfAbsent(node, n -> indexKids((COSArray) kids));
+            int kid = findKid(firstPages, remaining);
+            if (kid < 0) {
+                break;
+            }
+            COSDictionary kidDictionary = (COSDictionary) ((COSArray) kids).getObject(kid);
+            remaining -= firstPages[kid];
+            if (!isPageTreeNode(kidDictionary)) {
+                if (remaining == 0) {
+                    return new PDPage(kidDictionary);
+                }
+                break;
+            }
+            node = kidDictionary;
+        }
+        LOG.warn("Inconsistent page tree, page {} is looked up in the page list.", pageIndex + 1);
+        return fallback(pageIndex);
+    }
+
+    private static int[] indexKids(COSArray kids) {
+        int[] firstPages = new int[kids.size() + 1];
+        for (int i = 0; i < kids.size(); i++) {
+            COSBase kid = kids.getObject(i);
+            int count = 0;
+            if (kid instanceof COSDictionary) {
+                COSDictionary kidDictionary = (COSDictionary) kid;
+                count = isPageTreeNode(kidDictionary) ? Math.max(0, kidDictionary.getInt(COSName.COUNT, 0)) : 1;
+            }
+            firstPages[i + 1] = firstPages[i] + count;
+        }
+        return firstPages;
+    }
+
+    /**
+     * @return The last kid starting at or before the page index, -1 if the
+     * page index is out of the node.
+     */
+    private static int findKid(int[] firstPages, int pageIndex) {
+        int kids = firstPages.length - 1;
+        if (pageIndex < 0 || pageIndex >= firstPages[kids]) {
+            return -1;
+        }
+        int low = 0;
+        int high = kids - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstPages[mid] <= pageIndex) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isPageTreeNode(COSDictionary dictionary) {
+        return COSName.PAGES.equals(dictionary.getDictionaryObject(COSName.TYPE))
+                || dictionary.getDictionaryObject(COSName.KIDS) instanceof COSArray;
+    }
+
+    private PDPage fallback(int pageIndex) {
+        if (allPages == null) {
+            allPages = document.getDocumentCatalog().getAllPages();
+        }
+        if (pageIndex >= allPages.size()) {
+            throw new IllegalStateException("Page " + (pageIndex + 1) + " does not exists!");
+        }
+        return (PDPage) allPages.get(pageIndex);
+    }
+}
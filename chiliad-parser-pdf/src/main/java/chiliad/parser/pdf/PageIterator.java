@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import chiliad.parser.pdf.model.MPage;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * Lazy iterator over the selected pages, a page is extracted by
+ * {@link #next()}.
+ */
+final class PageIterator implements Iterator<MPage> {
+
+    private final ChiliadPDFParser parser;
+    private final int[] pageNumbers;
+    private int next;
+
+    PageIterator(ChiliadPDFParser parser, int[] pageNumbers) {
+        this.parser = parser;
+        this.pageNumbers = pageNumbers;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < pageNumbers.length && !parser.isCancelled();
+    }
+
+    @Override
+    public MPage next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int pageNumber = pageNumbers[next++];
+        PDPage page = parser.getPageIndex().getPage(pageNumber);
+        return parser.extractPage(parser.getExtractors(), pageNumber, page);
+    }
+
+    /**
+     * @return Number of the pages not extracted yet.
+     */
+    int remaining() {
+        return pageNumbers.length - next;
+    }
+}
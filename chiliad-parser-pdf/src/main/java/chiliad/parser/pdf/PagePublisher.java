@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import chiliad.parser.pdf.model.MPage;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the pages of a parser with backpressure, a page is extracted only
+ * when the subscriber has requested it, so a slow subscriber does not make
+ * extracted pages pile up.
+ *
+ * The pages are extracted on the executor, at most one task runs at a time.
+ * The parser is not thread safe, so the publisher accepts one subscriber.
+ * The parser is shut down once, when the pages are completed, on an error or
+ * after the subscription is cancelled.
+ */
+final class PagePublisher implements Flow.Publisher<MPage> {
+
+    private final Supplier<Iterator<MPage>> pages;
+    private final Executor executor;
+    private final Runnable shutDown;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicBoolean shutDownDone = new AtomicBoolean();
+
+    PagePublisher(Supplier<Iterator<MPage>> pages, Executor executor, Runnable shutDown) {
+        this.pages = pages;
+        this.executor = executor;
+        this.shutDown = shutDown;
+    }
+
+    private void shutDown() {
+        if (shutDownDone.compareAndSet(false, true)) {
+            shutDown.run();
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super MPage> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("The subscriber is null.");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The page publisher supports one subscriber."));
+            return;
+        }
+        subscriber.onSubscribe(new PageSubscription(subscriber));
+    }
+
+    private final class PageSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super MPage> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        /**
+         * Number of drain requests, the drain task runs while it is not zero.
+         */
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean done;
+        private volatile Throwable invalidRequest;
+        private Iterator<MPage> iterator;
+
+        PageSubscription(Flow.Subscriber<? super MPage> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (done) {
+                return;
+            }
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * The parser is shut down by the drain task, so not while a page is
+         * extracted.
+         */
+        @Override
+        public void cancel() {
+            done = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int drains = 1;
+            do {
+                emit();
+                drains = pendingDrains.addAndGet(-drains);
+            } while (drains != 0);
+        }
+
+        private void emit() {
+            try {
+                while (!done) {
+                    if (invalidRequest != null) {
+                        fail(invalidRequest);
+                        return;
+                    }
+                    if (iterator == null) {
+                        iterator = pages.get();
+                    }
+                    if (!iterator.hasNext()) {
+                        done = true;
+                        shutDown();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (demand.get() == 0) {
+                        return;
+                    }
+                    MPage page = iterator.next();
+                    demand.decrementAndGet();
+                    subscriber.onNext(page);
+                }
+            } catch (RuntimeException ex) {
+                fail(ex);
+            }
+            if (done) {
+                shutDown();
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (!done) {
+                done = true;
+                shutDown();
+                subscriber.onError(error);
+            }
+        }
+    }
+}
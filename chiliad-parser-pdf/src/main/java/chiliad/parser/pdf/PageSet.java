@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Set of page numbers to parse, a union of single pages, ranges (optionally
+ * with a step) and the last pages of the document. The page numbering starts
+ * by 1, the set is resolved against the number of pages of the document, the
+ * pages outside of the document are ignored.
+ *
+ * The text form is a comma separated list of terms:
+ * <ul>
+ * <li>{@code 7} - page 7</li>
+ * <li>{@code 3-9} - pages 3 to 9, {@code 3-} from page 3 to the last page</li>
+ * <li>{@code 1-/5} - every 5th page from page 1 (1, 6, 11, ...), the step is
+ * allowed after any range</li>
+ * <li>{@code last:10} - the last 10 pages</li>
+ * </ul>
+ */
+public final class PageSet {
+
+    private static final String TERM_SEPARATOR = ",";
+    private static final String RANGE_SEPARATOR = "-";
+    private static final String STEP_SEPARATOR = "/";
+    private static final String LAST_PREFIX = "last:";
+
+    private final List<Term> terms;
+
+    private PageSet(List<Term> terms) {
+        this.terms = Collections.unmodifiableList(terms);
+    }
+
+    public static PageSet all() {
+        return range(1, Integer.MAX_VALUE);
+    }
+
+    public static PageSet of(int... pageNumbers) {
+        List<Term> terms = new ArrayList<>(pageNumbers.length);
+        for (int pageNumber : pageNumbers) {
+            terms.add(new Term(pageNumber, pageNumber, 1, false));
+        }
+        return new PageSet(terms);
+    }
+
+    public static PageSet range(int first, int last) {
+        return stepRange(first, last, 1);
+    }
+
+    /**
+     * @param first
+     * @param last
+     * @param step Every step-th page is in the set, starting by the first.
+     * @return The page set.
+     */
+    public static PageSet stepRange(int first, int last, int step) {
+        return new PageSet(Collections.singletonList(new Term(first, last, step, false)));
+    }
+
+    /**
+     * @param step
+     * @return Every step-th page of the document starting by the first page.
+     */
+    public static PageSet everyNth(int step) {
+        return stepRange(1, Integer.MAX_VALUE, step);
+    }
+
+    public static PageSet last(int numberOfPages) {
+        return new PageSet(Collections.singletonList(new Term(numberOfPages, numberOfPages, 1, true)));
+    }
+
+    /**
+     * @param expression Terms in the text form, see the class description.
+     * @return The page set.
+     * @throws IllegalArgumentException If the expression is invalid.
+     */
+    public static PageSet parse(String expression) {
+        List<Term> terms = new ArrayList<>();
+        for (String term : StringUtils.split(StringUtils.deleteWhitespace(StringUtils.trimToEmpty(expression)), TERM_SEPARATOR)) {
+            terms.add(parseTerm(term));
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Empty page set.");
+        }
+        return new PageSet(terms);
+    }
+
+    public PageSet union(PageSet other) {
+        List<Term> union = new ArrayList<>(terms);
+        union.addAll(other.terms);
+        return new PageSet(union);
+    }
+
+    /**
+     * @param numberOfPages Number of pages of the document.
+     * @return The page numbers of the set in ascending order, without
+     * duplicates.
+     */
+    public int[] resolve(int numberOfPages) {
+        BitSet pages = new BitSet(numberOfPages + 1);
+        for (Term term : terms) {
+            term.addTo(pages, numberOfPages);
+        }
+        int[] pageNumbers = new int[pages.cardinality()];
+        int i = 0;
+        for (int pageNumber = pages.nextSetBit(0); pageNumber >= 0; pageNumber = pages.nextSetBit(pageNumber + 1)) {
+            pageNumbers[i++] = pageNumber;
+        }
+        return pageNumbers;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtils.join(terms, TERM_SEPARATOR);
+    }
+
+    private static Term parseTerm(String term) {
+        try {
+            if (term.startsWith(LAST_PREFIX)) {
+                int count = Integer.parseInt(term.substring(LAST_PREFIX.length()));
+                return new Term(count, count, 1, true);
+            }
+            int step = 1;
+            String range = term;
+            if (term.contains(STEP_SEPARATOR)) {
+                range = StringUtils.substringBefore(term, STEP_SEPARATOR);
+                step = Integer.parseInt(StringUtils.substringAfter(term, STEP_SEPARATOR));
+            }
+            if (!range.contains(RANGE_SEPARATOR)) {
+                int pageNumber = Integer.parseInt(range);
+                return new Term(pageNumber, pageNumber, step, false);
+            }
+            int first = Integer.parseInt(StringUtils.substringBefore(range, RANGE_SEPARATOR));
+            String last = StringUtils.substringAfter(range, RANGE_SEPARATOR);
+            return new Term(first, last.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(last), step, false);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid page set term '" + term + "'.", ex);
+        }
+    }
+
+    private static final class Term {
+
+        private final int first;
+        private final int last;
+        private final int step;
+        /**
+         * The first and last are the count of the last pages.
+         */
+        private final boolean fromEnd;
+
+        Term(int first, int last, int step, boolean fromEnd) {
+            if (first < 1 || last < first || step < 1) {
+                throw new IllegalArgumentException("Invalid page set term: first " + first + ", last " + last + ", step " + step);
+            }
+            this.first = first;
+            this.last = last;
+            this.step = step;
+            this.fromEnd = fromEnd;
+        }
+
+        void addTo(BitSet pages, int numberOfPages) {
+            if (fromEnd) {
+                pages.set(Math.max(1, numberOfPages - first + 1), numberOfPages + 1);
+                return;
+            }
+            int end = Math.min(last, numberOfPages);
+            if (step == 1) {
+                if (first <= end) {
+                    pages.set(first, end + 1);
+                }
+                return;
+            }
+            for (long pageNumber = first; pageNumber <= end; pageNumber += step) {
+                pages.set((int) pageNumber);
+            }
+        }
+
+        @Override
+        public String toString() {
+            if (fromEnd) {
+                return LAST_PREFIX + first;
+            }
+            String range = first == last ? Integer.toString(first)
+                    : first + RANGE_SEPARATOR + (last == Integer.MAX_VALUE ? "" : Integer.toString(last));
+            return step == 1 ? range : range + STEP_SEPARATOR + step;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import chiliad.parser.pdf.extractor.ColorCache;
+import chiliad.parser.pdf.extractor.ExtractorException;
+import chiliad.parser.pdf.extractor.FontRegistry;
+import chiliad.parser.pdf.extractor.PageExtractor;
+import chiliad.parser.pdf.jfr.DocumentLoadEvent;
+import chiliad.parser.pdf.model.MPage;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts pages on a pool of worker threads. The pdfbox document and the
+ * extractors are not thread safe, therefore every worker has its own copy of
+ * the document, with its own font registry and color cache, and its own
+ * extractor instances. The output is written on the
+ * calling thread, in page order unless the unordered mode is requested.
+ */
+final class ParallelPageProcessor {
+
+    final static Logger LOG = LoggerFactory.getLogger(ParallelPageProcessor.class);
+
+    /**
+     * Maximum number of pages extracted or waiting in the reorder buffer per
+     * worker.
+     */
+    private static final int PAGES_IN_FLIGHT_PER_WORKER = 2;
+    /**
+     * Maximum time to wait for the pages in extraction after a failure.
+     */
+    private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+
+    private final ChiliadPDFParser parser;
+    private final int workers;
+    private final boolean ordered;
+
+    ParallelPageProcessor(ChiliadPDFParser parser, int workers, boolean ordered) {
+        this.parser = parser;
+        this.workers = workers;
+        this.ordered = ordered;
+    }
+
+    void process(int[] pageNumbers) {
+        List<PageWorker> pageWorkers = new ArrayList<>(workers);
+        ExecutorService executor = Executors.newFixedThreadPool(workers,
+                new ThreadFactoryBuilder().setNameFormat("chiliad-page-worker-%d").setDaemon(true).build());
+        CompletionService<ExtractedPage> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            pageWorkers.add(new PageWorker(parser.getDocument(), parser.getPageIndex(), parser.getExtractors(), false));
+            for (int i = 1; i < workers; i++) {
+                PDDocument document = loadDocument();
+                pageWorkers.add(new PageWorker(document, new PageIndex(document), parser.getExtractorFactory().get(), true));
+            }
+            BlockingQueue<PageWorker> idleWorkers = new ArrayBlockingQueue<>(workers, false, pageWorkers);
+            dispatch(pageNumbers, idleWorkers, completionService);
+        } finally {
+            executor.shutdownNow();
+            // the documents are closed only when no page is read from them any more
+            if (awaitTermination(executor, completionService)) {
+                pageWorkers.forEach(PageWorker::close);
+            }
+        }
+    }
+
+    /**
+     * Waits for the pages in extraction after the workers were stopped, e.g.
+     * because a page failed. The failures of the other pages are only logged,
+     * the first one is thrown by the dispatch.
+     *
+     * @return Whether the workers stopped, otherwise their documents can not
+     * be closed.
+     */
+    private static boolean awaitTermination(ExecutorService executor, CompletionService<ExtractedPage> completionService) {
+        try {
+            if (!executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Page workers still running after {} s, their documents are left open.", TERMINATION_TIMEOUT_SECONDS);
+                return false;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while waiting for the page workers, their documents are left open.");
+            return false;
+        }
+        Future<ExtractedPage> future;
+        while ((future = completionService.poll()) != null) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                LOG.debug("Page extraction failed after the workers were stopped.", ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return true;
+    }
+
+    private void dispatch(int[] pageNumbers, BlockingQueue<PageWorker> idleWorkers, CompletionService<ExtractedPage> completionService) {
+        final int window = workers * PAGES_IN_FLIGHT_PER_WORKER;
+        final Map<Integer, ExtractedPage> reorderBuffer = new HashMap<>();
+        int submitted = 0;
+        int inFlight = 0;
+        int nextToWrite = 0;
+        try {
+            while ((submitted < pageNumbers.length && !parser.isCancelled()) || inFlight > 0) {
+                while (submitted < pageNumbers.length && !parser.isCancelled() && inFlight + reorderBuffer.size() < window) {
+                    final int sequence = submitted++;
+                    final int pageNumber = pageNumbers[sequence];
+                    completionService.submit(() -> {
+                        PageWorker worker = idleWorkers.take();
+                        try {
+                            return worker.extract(sequence, pageNumber);
+                        } finally {
+                            idleWorkers.put(worker);
+                        }
+                    });
+                    inFlight++;
+                }
+                ExtractedPage extracted = completionService.take().get();
+                inFlight--;
+                if (!ordered) {
+                    parser.writePage(extracted.page, extracted.content);
+                    continue;
+                }
+                reorderBuffer.put(extracted.sequence, extracted);
+                while ((extracted = reorderBuffer.remove(nextToWrite)) != null) {
+                    parser.writePage(extracted.page, extracted.content);
+                    nextToWrite++;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ExtractorException("Interrupted while waiting for the page workers.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new ExtractorException("Failed to extract page.", ex.getCause());
+        }
+    }
+
+    private PDDocument loadDocument() {
+        try {
+            DocumentLoadEvent event = new DocumentLoadEvent();
+            event.begin();
+            long start = System.nanoTime();
+            PDDocument document = parser.getSource().loadDocument();
+            parser.getMetrics().recordTime("document.load", System.nanoTime() - start);
+            event.commit(parser.getSource().getId());
+            ChiliadPDFParser.decrypt(document);
+            return document;
+        } catch (IOException ex) {
+            throw new PDFLoadingException("Failed to load document for page worker.", ex);
+        }
+    }
+
+    private final class PageWorker {
+
+        private final PDDocument document;
+        private final PageExtractor[] extractors;
+        private final boolean ownsDocument;
+        private final PageIndex pageIndex;
+
+        PageWorker(PDDocument document, PageIndex pageIndex, PageExtractor[] extractors, boolean ownsDocument) {
+            this.document = document;
+            this.pageIndex = pageIndex;
+            this.extractors = extractors;
+            this.ownsDocument = ownsDocument;
+            if (ownsDocument) {
+                ChiliadPDFParser.shareDocumentCaches(extractors, new FontRegistry(), new ColorCache());
+                parser.shareMetrics(extractors);
+            }
+        }
+
+        ExtractedPage extract(int sequence, int pageNumber) {
+            PDPage page = pageIndex.getPage(pageNumber);
+            return new ExtractedPage(sequence, page, parser.extractPage(extractors, pageNumber, page));
+        }
+
+        void close() {
+            if (ownsDocument) {
+                try {
+                    document.close();
+                } catch (IOException ex) {
+                    LOG.error("Exception while closing the document of a page worker.", ex);
+                }
+            }
+        }
+    }
+
+    private static final class ExtractedPage {
+
+        private final int sequence;
+        private final PDPage page;
+        private final MPage content;
+
+        ExtractedPage(int sequence, PDPage page, MPage content) {
+            this.sequence = sequence;
+            this.page = page;
+            this.content = content;
+        }
+    }
+}
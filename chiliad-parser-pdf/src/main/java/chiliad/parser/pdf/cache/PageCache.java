@@ -0,0 +1,275 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.cache;
+
+import chiliad.parser.pdf.codec.BinaryPageReader;
+import chiliad.parser.pdf.codec.BinaryPageWriter;
+import chiliad.parser.pdf.model.MPage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On disk cache of the extracted pages.
+ *
+ * A page is stored in the binary page format under the hash of the document
+ * content, the extractor fingerprint and the page number, so the same
+ * document is found whatever its name or source. The number of pages of a
+ * document is cached too, so the pages of a cached document can be resolved
+ * without loading it.
+ *
+ * The files are evicted in least recently used order when the cache is larger
+ * than its maximum size. The order is kept in the last modified time of the
+ * files, so it survives a restart. Failures of the cache are logged and
+ * treated as misses.
+ */
+public class PageCache {
+
+    final static org.slf4j.Logger LOG = LoggerFactory.getLogger(PageCache.class);
+
+    private static final String VERSION = "1";
+    private static final String PAGE_EXTENSION = ".page";
+    private static final String PAGES_EXTENSION = ".pages";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private final File directory;
+    private final long maxSize;
+    /**
+     * Length of the cache files in access order.
+     */
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     *
+     * @param directory Directory of the cache, created if missing.
+     * @param maxSize Maximum size of the cache files (bytes).
+     * @throws IOException
+     */
+    public PageCache(File directory, long maxSize) throws IOException {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative cache size: " + maxSize);
+        }
+        FileUtils.forceMkdir(directory);
+        this.directory = directory;
+        this.maxSize = maxSize;
+        File[] existing = directory.listFiles((dir, name) -> name.endsWith(PAGE_EXTENSION) || name.endsWith(PAGES_EXTENSION));
+        Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+        for (File file : existing) {
+            files.put(file.getName(), file.length());
+            size += file.length();
+        }
+        evict();
+    }
+
+    public static PageCache withMaxSizeInMB(File directory, long maxSizeInMB) throws IOException {
+        return new PageCache(directory, maxSizeInMB * 1024 * 1024);
+    }
+
+    /**
+     * @param content Content of a document, closed by the method.
+     * @return The SHA-256 hash of the content.
+     * @throws IOException
+     */
+    public static String hash(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            IOUtils.copyLarge(in, NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @param documentHash
+     * @param fingerprint Fingerprint of the extractors.
+     * @param pageNumber
+     * @return The cached page, null for a miss.
+     */
+    public MPage get(String documentHash, String fingerprint, int pageNumber) {
+        File file = touch(pageFileName(documentHash, fingerprint, pageNumber));
+        if (file != null) {
+            try (BinaryPageReader reader = new BinaryPageReader(new FileInputStream(file))) {
+                MPage page = reader.read();
+                hits.incrementAndGet();
+                return page;
+            } catch (IOException ex) {
+                LOG.warn("Failed to read cached page " + file + ".", ex);
+                remove(file.getName());
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String documentHash, String fingerprint, MPage page) {
+        String name = pageFileName(documentHash, fingerprint, page.getPageNumber());
+        store(name, out -> {
+            try (BinaryPageWriter writer = new BinaryPageWriter(out)) {
+                writer.write(page);
+            }
+        });
+    }
+
+    /**
+     * @param documentHash
+     * @return The cached number of pages of the document, null if unknown.
+     */
+    public Integer getNumberOfPages(String documentHash) {
+        File file = touch(documentHash + PAGES_EXTENSION);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim());
+        } catch (IOException | NumberFormatException ex) {
+            LOG.warn("Failed to read cached number of pages " + file + ".", ex);
+            remove(file.getName());
+            return null;
+        }
+    }
+
+    public void putNumberOfPages(String documentHash, int numberOfPages) {
+        store(documentHash + PAGES_EXTENSION, out -> out.write(Integer.toString(numberOfPages).getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Size of the cache files (bytes).
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private interface Content {
+
+        void writeTo(FileOutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes a temporary file first, so a reader never sees a partial file.
+     */
+    private void store(String name, Content content) {
+        File file = new File(directory, name);
+        File temporary = new File(directory, name + "." + Thread.currentThread().getId() + TEMPORARY_EXTENSION);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temporary)) {
+                content.writeTo(out);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOG.warn("Failed to write cache file " + file + ".", ex);
+            temporary.delete();
+            return;
+        }
+        synchronized (this) {
+            Long previous = files.put(name, file.length());
+            size += file.length() - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    /**
+     * @return The file marked as recently used, null if it is not cached.
+     */
+    private File touch(String name) {
+        synchronized (this) {
+            if (files.get(name) == null) {
+                return null;
+            }
+        }
+        File file = new File(directory, name);
+        if (!file.setLastModified(System.currentTimeMillis()) && !file.exists()) {
+            remove(name);
+            return null;
+        }
+        return file;
+    }
+
+    private synchronized void remove(String name) {
+        Long length = files.remove(name);
+        if (length != null) {
+            size -= length;
+        }
+        new File(directory, name).delete();
+    }
+
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            new File(directory, entry.getKey()).delete();
+            size -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private static String pageFileName(String documentHash, String fingerprint, int pageNumber) {
+        MessageDigest digest = sha256();
+        digest.update((VERSION + '\n' + documentHash + '\n' + fingerprint + '\n' + pageNumber).getBytes(StandardCharsets.UTF_8));
+        return toHex(digest.digest()) + PAGE_EXTENSION;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
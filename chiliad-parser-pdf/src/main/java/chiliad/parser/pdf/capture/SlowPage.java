@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.capture;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The measurements and the settings of the extraction of a page, written
+ * next to the captured page.
+ */
+public final class SlowPage {
+
+    private final String sourceId;
+    private final int pageNumber;
+    private long nanos;
+    private long allocatedBytes = SlowPageCapture.UNLIMITED;
+    private String truncation;
+    private final Map<String, Long> extractorNanos = new LinkedHashMap<>();
+    private final Map<String, String> settings = new LinkedHashMap<>();
+
+    public SlowPage(String sourceId, int pageNumber) {
+        this.sourceId = sourceId;
+        this.pageNumber = pageNumber;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * @return Extraction time of the page with every extractor.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public void setNanos(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return Bytes allocated by the extraction, -1 if not measured.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getTruncation() {
+        return truncation;
+    }
+
+    public void setTruncation(String truncation) {
+        this.truncation = truncation;
+    }
+
+    /**
+     * @return Extraction time by extractor, in the order of the extractors.
+     */
+    public Map<String, Long> getExtractorNanos() {
+        return Collections.unmodifiableMap(extractorNanos);
+    }
+
+    public void addExtractorNanos(String extractor, long extractorNanos) {
+        this.extractorNanos.merge(extractor, extractorNanos, Long::sum);
+    }
+
+    /**
+     * @return Settings of the parser and the extractors needed to reproduce
+     * the extraction, e.g. the fingerprint of the extractors.
+     */
+    public Map<String, String> getSettings() {
+        return Collections.unmodifiableMap(settings);
+    }
+
+    public void putSetting(String name, Object value) {
+        settings.put(name, String.valueOf(value));
+    }
+}
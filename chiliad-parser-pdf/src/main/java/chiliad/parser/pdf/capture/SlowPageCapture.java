@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.capture;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Saves the pages exceeding a latency or allocation threshold as standalone
+ * PDF files, so they can be reproduced without the whole document.
+ *
+ * A captured page is imported into a new document with the attributes it
+ * inherits from the page tree, its annotations are copied without the
+ * references to other pages. The measurements and the settings of the
+ * extraction are written next to it as a JSON sidecar with the same name.
+ *
+ * The capture files are limited to a quota, pages are not captured any more
+ * once it is reached; the existing files of the directory count too. Failures
+ * are logged, they never fail the parsing.
+ */
+public class SlowPageCapture {
+
+    final static org.slf4j.Logger LOG = LoggerFactory.getLogger(SlowPageCapture.class);
+
+    public static final long UNLIMITED = -1;
+
+    private static final String PDF_EXTENSION = ".pdf";
+    private static final String SIDECAR_EXTENSION = ".json";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final List<COSName> PAGE_REFERENCES = Arrays.asList(COSName.P, COSName.PARENT, COSName.getPDFName("Popup"),
+            COSName.getPDFName("IRT"), COSName.DEST, COSName.A);
+
+    private final File directory;
+    private final long maxSize;
+    private final long latencyThresholdNanos;
+    private final long allocationThreshold;
+    private long size;
+    private boolean quotaReached;
+    private final AtomicInteger captured = new AtomicInteger();
+
+    /**
+     * @param directory Directory of the captured pages, created if missing.
+     * @param maxSize Maximum size of the capture files (bytes).
+     * @param latencyThresholdMillis Pages extracted slower are captured,
+     * {@link #UNLIMITED} to ignore the latency.
+     * @param allocationThreshold Pages allocating more bytes are captured,
+     * {@link #UNLIMITED} to ignore the allocation.
+     * @throws IOException
+     */
+    public SlowPageCapture(File directory, long maxSize, long latencyThresholdMillis, long allocationThreshold) throws IOException {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative capture quota: " + maxSize);
+        }
+        FileUtils.forceMkdir(directory);
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.latencyThresholdNanos = latencyThresholdMillis == UNLIMITED ? UNLIMITED : latencyThresholdMillis * 1_000_000;
+        this.allocationThreshold = allocationThreshold;
+        for (File file : directory.listFiles((dir, name) -> name.endsWith(PDF_EXTENSION) || name.endsWith(SIDECAR_EXTENSION))) {
+            size += file.length();
+        }
+    }
+
+    public static SlowPageCapture withMaxSizeInMB(File directory, long maxSizeInMB, long latencyThresholdMillis, long allocationThreshold) throws IOException {
+        return new SlowPageCapture(directory, maxSizeInMB * 1024 * 1024, latencyThresholdMillis, allocationThreshold);
+    }
+
+    /**
+     * @return True if the allocation of the pages has to be measured.
+     */
+    public boolean isMeasuringAllocation() {
+        return allocationThreshold != UNLIMITED;
+    }
+
+    /**
+     * @param nanos Extraction time of the page.
+     * @param allocatedBytes Bytes allocated by the extraction, -1 if not
+     * measured.
+     * @return True if the page exceeds a threshold.
+     */
+    public boolean isSlow(long nanos, long allocatedBytes) {
+        return (latencyThresholdNanos != UNLIMITED && nanos > latencyThresholdNanos)
+                || (allocationThreshold != UNLIMITED && allocatedBytes > allocationThreshold);
+    }
+
+    /**
+     * Saves the page and its sidecar, unless the quota is reached. The
+     * document of the page has to be open.
+     *
+     * @param page
+     * @param slowPage
+     * @return True if the page is captured.
+     */
+    public boolean capture(PDPage page, SlowPage slowPage) {
+        synchronized (this) {
+            if (quotaReached) {
+                return false;
+            }
+        }
+        String name = fileName(slowPage);
+        File pdf = new File(directory, name + PDF_EXTENSION);
+        File sidecar = new File(directory, name + SIDECAR_EXTENSION);
+        File temporaryPdf = temporary(pdf);
+        File temporarySidecar = temporary(sidecar);
+        try {
+            savePage(page, temporaryPdf);
+            saveSidecar(slowPage, temporarySidecar);
+            long length = temporaryPdf.length() + temporarySidecar.length();
+            synchronized (this) {
+                if (size + length > maxSize) {
+                    quotaReached = true;
+                    LOG.warn("The slow page quota of {} bytes is reached, no more pages are captured into {}.", maxSize, directory);
+                    return false;
+                }
+                size += length;
+            }
+            Files.move(temporaryPdf.toPath(), pdf.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(temporarySidecar.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            captured.incrementAndGet();
+            LOG.info("Page {} of {} is captured into {}.", slowPage.getPageNumber(), slowPage.getSourceId(), pdf);
+            return true;
+        } catch (IOException | COSVisitorException | RuntimeException ex) {
+            LOG.warn("Failed to capture page {} of {}.", slowPage.getPageNumber(), slowPage.getSourceId(), ex);
+            return false;
+        } finally {
+            temporaryPdf.delete();
+            temporarySidecar.delete();
+        }
+    }
+
+    /**
+     * @return Number of the pages captured by this instance.
+     */
+    public int getCaptured() {
+        return captured.get();
+    }
+
+    /**
+     * @return Size of the capture files (bytes).
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private static void savePage(PDPage page, File file) throws IOException, COSVisitorException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage imported = document.importPage(page);
+            imported.setResources(page.findResources());
+            imported.setMediaBox(page.findMediaBox());
+            imported.setCropBox(page.findCropBox());
+            imported.setRotation(page.findRotation());
+            // article beads point to other pages
+            imported.getCOSDictionary().removeItem(COSName.B);
+            COSArray annotations = (COSArray) imported.getCOSDictionary().getDictionaryObject(COSName.ANNOTS);
+            if (annotations != null) {
+                imported.getCOSDictionary().setItem(COSName.ANNOTS, copyAnnotations(annotations, imported));
+            }
+            try (OutputStream out = new FileOutputStream(file)) {
+                document.save(out);
+            }
+        }
+    }
+
+    /**
+     * The annotations are copied, so the source document is not changed.
+     */
+    private static COSArray copyAnnotations(COSArray annotations, PDPage page) {
+        COSArray copies = new COSArray();
+        for (int i = 0; i < annotations.size(); i++) {
+            COSBase annotation = annotations.getObject(i);
+            if (annotation instanceof COSDictionary) {
+                COSDictionary copy = new COSDictionary((COSDictionary) annotation);
+                for (COSName reference : PAGE_REFERENCES) {
+                    copy.removeItem(reference);
+                }
+                copy.setItem(COSName.P, page);
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    private static void saveSidecar(SlowPage slowPage, File file) throws IOException {
+        try (JsonGenerator gen = new JsonFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartObject();
+            gen.writeStringField("source", slowPage.getSourceId());
+            gen.writeNumberField("pageNumber", slowPage.getPageNumber());
+            gen.writeStringField("capturedAt", Instant.now().toString());
+            gen.writeNumberField("extractMillis", slowPage.getNanos() / 1e6);
+            if (slowPage.getAllocatedBytes() != UNLIMITED) {
+                gen.writeNumberField("allocatedBytes", slowPage.getAllocatedBytes());
+            }
+            if (slowPage.getTruncation() != null) {
+                gen.writeStringField("truncation", slowPage.getTruncation());
+            }
+            gen.writeObjectFieldStart("extractorMillis");
+            for (Map.Entry<String, Long> extractor : slowPage.getExtractorNanos().entrySet()) {
+                gen.writeNumberField(extractor.getKey(), extractor.getValue() / 1e6);
+            }
+            gen.writeEndObject();
+            gen.writeObjectFieldStart("settings");
+            for (Map.Entry<String, String> setting : slowPage.getSettings().entrySet()) {
+                gen.writeStringField(setting.getKey(), setting.getValue());
+            }
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * @return Name of the document and the page, the hash tells apart the
+     * documents of the same name.
+     */
+    private static String fileName(SlowPage slowPage) {
+        String baseName = FilenameUtils.getBaseName(slowPage.getSourceId()).replaceAll("[^A-Za-z0-9._-]", "_");
+        return String.format(Locale.ROOT, "%s-%08x-page-%d", baseName, slowPage.getSourceId().hashCode(), slowPage.getPageNumber());
+    }
+
+    private static File temporary(File file) {
+        return new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + TEMPORARY_EXTENSION);
+    }
+}
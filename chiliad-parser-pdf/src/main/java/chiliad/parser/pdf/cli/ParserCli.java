@@ -15,16 +15,27 @@
  */
 package chiliad.parser.pdf.cli;
 
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.cache.PageCache;
+import chiliad.parser.pdf.capture.SlowPageCapture;
+import chiliad.parser.pdf.extractor.ContentStreamExtractor;
+import chiliad.parser.pdf.extractor.FusedExtractor;
 import chiliad.parser.pdf.extractor.PageExtractor;
 import chiliad.parser.pdf.extractor.image.ImageExtractor;
 import chiliad.parser.pdf.extractor.text.TextExtractor;
 import chiliad.parser.pdf.extractor.vectorgraphics.SVGBasedExtractor;
+import chiliad.parser.pdf.input.DocumentLoader;
+import chiliad.parser.pdf.output.AsyncOutput;
+import chiliad.parser.pdf.output.BinaryOutput;
+import chiliad.parser.pdf.output.ColumnarOutput;
 import chiliad.parser.pdf.output.HTMLOutput;
 import chiliad.parser.pdf.output.JSONOutput;
+import chiliad.parser.pdf.output.NDJSONOutput;
 import chiliad.parser.pdf.output.ParserOutputException;
 import chiliad.parser.pdf.output.ParserOutputWriter;
 import chiliad.parser.pdf.output.PlainStringOutput;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Collection;
@@ -55,6 +66,16 @@ public class ParserCli {
 
     private final String JSON_OUTPUT = "json";
 
+    private final String NDJSON_OUTPUT = "ndjson";
+
+    private final String BINARY_OUTPUT = "binary";
+
+    private final String BINARY_EXTENSION = "cpb";
+
+    private final String COLUMNAR_OUTPUT = "columnar";
+
+    private final String COLUMNAR_EXTENSION = "ccol";
+
     private final String HTML_OUTPUT = "html";
 
     private final String PLAIN_OUTPUT = "plain";
@@ -79,8 +100,29 @@ public class ParserCli {
     private final Option outputDir = new Option("outputDir", true, "Output directory.");
     private final Option startPage = new Option("startPage", true, "First page for parsing.");
     private final Option endPage = new Option("endPage", true, "Last page for parsing.");
-    private final Option outputFormat = new Option("outputFormat", true, "Ouput format of the parsed content (plain, html, json).");
+    private final Option pages = new Option("pages", true, "Pages for parsing instead of the start and end page, e.g. 1,4-6,10-/5,last:3 (page 1, pages 4 to 6, every 5th page from page 10, the last 3 pages).");
+    private final Option outputFormat = new Option("outputFormat", true, "Ouput format of the parsed content (plain, html, json, ndjson, binary, columnar).");
+    private final Option compactJson = new Option("compactJson", false, "Write the JSON output without indentation.");
+    private final Option outputQueue = new Option("outputQueue", true, "Number of pages queued for an output thread, the output is written on the calling thread without it.");
+    private final Option spillOutput = new Option("spillOutput", false, "Write the pages into spill files in the scratch directory when the output queue is full, instead of waiting.");
     private final Option extractors = new Option("extractors", true, "Extracted information (" + TEXT_EXTRACTOR + ", " + IMAGE_EXTRACTOR + ", " + VECTOR_GRAPHICS_EXTRACTOR + ").");
+    private final Option memoryBudget = new Option("memoryBudget", true, "Size of the PDF file (MB) up to which it is loaded into the memory, larger files are loaded lazily with a scratch file (default unlimited).");
+    private final Option scratchDir = new Option("scratchDir", true, "Directory of the scratch files (default temporary directory).");
+    private final Option cacheDir = new Option("cacheDir", true, "Directory of the page cache, parsed pages are reused from there (default no cache).");
+    private final Option cacheSize = new Option("cacheSize", true, "Maximum size of the page cache (MB, default 1024).");
+    private final Option workers = new Option("workers", true, "Number of threads extracting pages in parallel (default 1).");
+    private final Option lineTolerance = new Option("lineTolerance", true, "Maximum Y distance of the characters of a line (page unit, default 0).");
+    private final Option singlePass = new Option("singlePass", false, "Interpret the content stream of a page once for all extractors.");
+    private final Option pageTimeout = new Option("pageTimeout", true, "Maximal extraction time of a page (ms), the rest of the page is skipped and the page is marked as truncated (default unlimited).");
+    private final Option maxOperators = new Option("maxOperators", true, "Maximal number of content stream operators of a page, the rest of the page is skipped and the page is marked as truncated (default unlimited).");
+    private final Option maxXObjectDepth = new Option("maxXObjectDepth", true, "Maximal nesting of forms, deeper forms are skipped and the page is marked as truncated (default unlimited).");
+    private final Option metricsFile = new Option("metricsFile", true, "Write the timings and counters of the parsing into the file as JSON (default not measured).");
+    private final Option operatorProfile = new Option("operatorProfile", true, "Write the count and time of every content stream operator into the file, by decreasing time (default not profiled).");
+    private final Option slowPageDir = new Option("slowPageDir", true, "Directory to save the slow pages into, as single page PDF files with a JSON of their timings (default not saved).");
+    private final Option slowPageMillis = new Option("slowPageMillis", true, "Pages extracted slower are saved (ms, default 10000).");
+    private final Option slowPageAllocation = new Option("slowPageAllocation", true, "Pages allocating more memory are saved (MB, default unlimited).");
+    private final Option slowPageQuota = new Option("slowPageQuota", true, "Maximum size of the saved slow pages (MB, default 1024).");
+    private final Option unordered = new Option("unordered", false, "Write the pages in the order of their completion instead of the page order (only with more than one worker).");
 
     public ParserCli() {
         parser = new PosixParser();
@@ -122,12 +164,170 @@ public class ParserCli {
         return Integer.parseInt(commandLine.getOptionValue(endPage.getOpt(), getStartPage().toString()));
     }
 
+    /**
+     * @return The page set of the pages option, the range of the start and
+     * end page without it.
+     */
+    public PageSet getPages() {
+        if (!commandLine.hasOption(pages.getOpt())) {
+            if (getStartPage() < 1) {
+                throw new ParserCliException("The start page must be positive: " + getStartPage(), null);
+            }
+            if (getStartPage() > getEndPage()) {
+                throw new ParserCliException("The start page " + getStartPage() + " is after the end page " + getEndPage() + ".", null);
+            }
+            return PageSet.range(getStartPage(), getEndPage());
+        }
+        try {
+            return PageSet.parse(commandLine.getOptionValue(pages.getOpt()));
+        } catch (IllegalArgumentException ex) {
+            throw new ParserCliException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return Loader of the memory budget option, in memory loader without
+     * it.
+     */
+    public DocumentLoader getDocumentLoader() {
+        if (!commandLine.hasOption(memoryBudget.getOpt())) {
+            return DocumentLoader.IN_MEMORY;
+        }
+        File scratchDirectory = commandLine.hasOption(scratchDir.getOpt()) ? new File(commandLine.getOptionValue(scratchDir.getOpt())) : null;
+        try {
+            return DocumentLoader.withMemoryBudgetInMB(Long.parseLong(commandLine.getOptionValue(memoryBudget.getOpt())), scratchDirectory);
+        } catch (IllegalArgumentException ex) {
+            throw new ParserCliException("Invalid memory budget: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return Page cache of the cache directory option, null without it.
+     */
+    public PageCache getPageCache() {
+        if (!commandLine.hasOption(cacheDir.getOpt())) {
+            return null;
+        }
+        try {
+            return PageCache.withMaxSizeInMB(new File(commandLine.getOptionValue(cacheDir.getOpt())),
+                    Long.parseLong(commandLine.getOptionValue(cacheSize.getOpt(), "1024")));
+        } catch (IllegalArgumentException ex) {
+            throw new ParserCliException("Invalid cache size: " + ex.getMessage(), ex);
+        } catch (IOException ex) {
+            throw new ParserCliException("Failed to open the page cache: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return The capture of the slow pages, null without the option.
+     */
+    public SlowPageCapture getSlowPageCapture() {
+        if (!commandLine.hasOption(slowPageDir.getOpt())) {
+            return null;
+        }
+        try {
+            long allocation = Long.parseLong(commandLine.getOptionValue(slowPageAllocation.getOpt(), "-1"));
+            return SlowPageCapture.withMaxSizeInMB(new File(commandLine.getOptionValue(slowPageDir.getOpt())),
+                    Long.parseLong(commandLine.getOptionValue(slowPageQuota.getOpt(), "1024")),
+                    Long.parseLong(commandLine.getOptionValue(slowPageMillis.getOpt(), "10000")),
+                    allocation == SlowPageCapture.UNLIMITED ? SlowPageCapture.UNLIMITED : allocation * 1024 * 1024);
+        } catch (IllegalArgumentException ex) {
+            throw new ParserCliException("Invalid slow page setting: " + ex.getMessage(), ex);
+        } catch (IOException ex) {
+            throw new ParserCliException("Failed to open the slow page directory: " + ex.getMessage(), ex);
+        }
+    }
+
+    public Float getLineTolerance() {
+        return Float.parseFloat(commandLine.getOptionValue(lineTolerance.getOpt(), "0"));
+    }
+
+    public boolean isSinglePass() {
+        return commandLine.hasOption(singlePass.getOpt());
+    }
+
+    /**
+     * @return File of the metrics dump, null without the option.
+     */
+    public File getMetricsFile() {
+        return commandLine.hasOption(metricsFile.getOpt()) ? new File(commandLine.getOptionValue(metricsFile.getOpt())) : null;
+    }
+
+    /**
+     * @return File of the operator hotspot report, null without the option.
+     */
+    public File getOperatorProfileFile() {
+        return commandLine.hasOption(operatorProfile.getOpt()) ? new File(commandLine.getOptionValue(operatorProfile.getOpt())) : null;
+    }
+
+    public Long getPageTimeout() {
+        return Long.parseLong(commandLine.getOptionValue(pageTimeout.getOpt(), "-1"));
+    }
+
+    public Long getMaxOperators() {
+        return Long.parseLong(commandLine.getOptionValue(maxOperators.getOpt(), "-1"));
+    }
+
+    public Integer getMaxXObjectDepth() {
+        return Integer.parseInt(commandLine.getOptionValue(maxXObjectDepth.getOpt(), "-1"));
+    }
+
+    public Integer getWorkers() {
+        return Integer.parseInt(commandLine.getOptionValue(workers.getOpt(), "1"));
+    }
+
+    public boolean isUnordered() {
+        return commandLine.hasOption(unordered.getOpt());
+    }
+
+    public boolean isCompactJson() {
+        return commandLine.hasOption(compactJson.getOpt());
+    }
+
+    /**
+     * @return The output of the output format, written by an output thread
+     * with the output queue option.
+     */
     public ParserOutputWriter getOutputFormat() {
+        if (!commandLine.hasOption(outputQueue.getOpt())) {
+            if (commandLine.hasOption(spillOutput.getOpt())) {
+                throw new ParserCliException("The spillOutput option requires the outputQueue option.", null);
+            }
+            return createOutput();
+        }
+        // the options are validated before the output file is created
+        int capacity = getOutputQueue();
+        File spillDirectory = commandLine.hasOption(scratchDir.getOpt()) ? new File(commandLine.getOptionValue(scratchDir.getOpt())) : null;
+        return new AsyncOutput(createOutput(), capacity,
+                commandLine.hasOption(spillOutput.getOpt()) ? AsyncOutput.Backpressure.SPILL : AsyncOutput.Backpressure.BLOCK,
+                spillDirectory);
+    }
+
+    private int getOutputQueue() {
+        String value = commandLine.getOptionValue(outputQueue.getOpt());
+        try {
+            int capacity = Integer.parseInt(value);
+            if (capacity < 1) {
+                throw new ParserCliException("Invalid output queue, it must be positive: " + value, null);
+            }
+            return capacity;
+        } catch (NumberFormatException ex) {
+            throw new ParserCliException("Invalid output queue: " + value, ex);
+        }
+    }
+
+    private ParserOutputWriter createOutput() {
         try {
             String format = StringUtils.lowerCase(commandLine.getOptionValue(outputFormat.getOpt(), JSON_OUTPUT));
             switch (format) {
                 case JSON_OUTPUT:
-                    return new JSONOutput(new FileWriter(outputFile(format)));
+                    return new JSONOutput(new FileWriter(outputFile(format)), isCompactJson());
+                case NDJSON_OUTPUT:
+                    return new NDJSONOutput(new FileWriter(outputFile(format)));
+                case BINARY_OUTPUT:
+                    return new BinaryOutput(new FileOutputStream(outputFile(BINARY_EXTENSION)));
+                case COLUMNAR_OUTPUT:
+                    return new ColumnarOutput(new FileOutputStream(outputFile(COLUMNAR_EXTENSION)));
                 case HTML_OUTPUT:
                     return new HTMLOutput(new FileWriter(outputFile(format)));
                 default:
@@ -146,22 +346,39 @@ public class ParserCli {
             for (int i = 0; i < extNames.length; i++) {
                 pageExtractors[i] = createExtractor(extNames[i]);
             }
+            if (isSinglePass()) {
+                return new PageExtractor[]{fuse(pageExtractors)};
+            }
             return pageExtractors;
         }
         return new PageExtractor[]{createExtractor(exts)};
     }
 
+    private PageExtractor fuse(PageExtractor[] pageExtractors) {
+        ContentStreamExtractor[] members = new ContentStreamExtractor[pageExtractors.length];
+        for (int i = 0; i < pageExtractors.length; i++) {
+            members[i] = (ContentStreamExtractor) pageExtractors[i];
+        }
+        return new FusedExtractor(members);
+    }
+
+    private TextExtractor createTextExtractor() throws IOException {
+        TextExtractor textExtractor = new TextExtractor();
+        textExtractor.setLineTolerance(getLineTolerance());
+        return textExtractor;
+    }
+
     private PageExtractor createExtractor(String extName) {
         try {
             switch (extName) {
                 case TEXT_EXTRACTOR:
-                    return new TextExtractor();
+                    return createTextExtractor();
                 case IMAGE_EXTRACTOR:
                     return new ImageExtractor();
                 case VECTOR_GRAPHICS_EXTRACTOR:
                     return new SVGBasedExtractor();
                 default:
-                    return new TextExtractor();
+                    return createTextExtractor();
             }
         } catch (IOException ex) {
             throw new ParserOutputException("Failed to create extractor with name '" + extName + "'.", ex);
@@ -174,16 +391,39 @@ public class ParserCli {
         opts.addOption(pdfFile);
         opts.addOption(startPage);
         opts.addOption(endPage);
+        opts.addOption(pages);
         opts.addOption(outputDir);
         opts.addOption(outputFormat);
+        opts.addOption(compactJson);
+        opts.addOption(outputQueue);
+        opts.addOption(spillOutput);
+        opts.addOption(memoryBudget);
+        opts.addOption(scratchDir);
+        opts.addOption(cacheDir);
+        opts.addOption(cacheSize);
         opts.addOption(extractors);
+        opts.addOption(lineTolerance);
+        opts.addOption(singlePass);
+        opts.addOption(workers);
+        opts.addOption(unordered);
+        opts.addOption(pageTimeout);
+        opts.addOption(maxOperators);
+        opts.addOption(maxXObjectDepth);
+        opts.addOption(metricsFile);
+        opts.addOption(operatorProfile);
+        opts.addOption(slowPageDir);
+        opts.addOption(slowPageMillis);
+        opts.addOption(slowPageAllocation);
+        opts.addOption(slowPageQuota);
         return opts;
     }
 
     /**
      *
      * @param ext
-     * @return File with name pattern like filename_pages_startpage_endpage.ext
+     * @return File with name pattern like filename_pages_startpage_endpage.ext,
+     * or filename_pages_pageset.ext with the pages option (e.g.
+     * hello_pages_1_4-6.json)
      */
     protected File outputFile(String ext) {
         return new File(
@@ -191,7 +431,9 @@ public class ParserCli {
                 + File.separator
                 + FilenameUtils.getBaseName(getPDFFile().getName())
                 + "_pages_"
-                + getStartPage() + "_" + getEndPage()
+                + (commandLine.hasOption(pages.getOpt())
+                        ? getPages().toString().replaceAll("[^0-9a-z-]", "_")
+                        : getStartPage() + "_" + getEndPage())
                 + "." + ext);
     }
 
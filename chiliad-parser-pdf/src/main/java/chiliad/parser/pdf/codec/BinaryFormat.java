@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.codec;
+
+/**
+ * Constants of the binary page format.
+ *
+ * A stream starts with the {@link #MAGIC} bytes and the {@link #VERSION},
+ * followed by page records ({@link #PAGE}) and the {@link #END} marker.
+ * Integers are unsigned varints (7 bits per byte, least significant group
+ * first).
+ *
+ * Strings are written as a varint reference: {@link #NULL} for null,
+ * {@link #NEW_ENTRY} for a string added to the string table of the stream,
+ * {@link #LITERAL} for a string not added to the table (both followed by the
+ * length and the UTF-8 bytes), otherwise the table index plus
+ * {@link #FIRST_ENTRY}. Colors are referenced from a color table the same
+ * way, a new color is followed by its four ARGB bytes.
+ *
+ * Numbers are written as a varint with the kind in the lowest two bits: null,
+ * a float value given by the XOR of its bits with the previous float of the
+ * same column (so repeated values take one byte), or a double with eight
+ * following bytes.
+ *
+ * Version 2 added the truncation of the page after the vector graphics, the
+ * pages of version 1 streams are complete.
+ */
+final class BinaryFormat {
+
+    static final byte[] MAGIC = {'C', 'P', 'B'};
+    static final int VERSION = 2;
+    static final int FIRST_VERSION = 1;
+
+    static final int END = 0;
+    static final int PAGE = 1;
+
+    static final int NULL = 0;
+    static final int NEW_ENTRY = 1;
+    static final int LITERAL = 2;
+    static final int FIRST_ENTRY = 3;
+
+    static final int NUMBER_NULL = 0;
+    static final int NUMBER_FLOAT = 1;
+    static final int NUMBER_DOUBLE = 2;
+
+    /**
+     * Maximum number of entries of a string or color table.
+     */
+    static final int MAX_TABLE_SIZE = 1 << 16;
+
+    /**
+     * Columns of the delta encoded numbers.
+     */
+    static final int PAGE_WIDTH = 0;
+    static final int PAGE_HEIGHT = 1;
+    static final int X = 2;
+    static final int Y = 3;
+    static final int WIDTH = 4;
+    static final int HEIGHT = 5;
+    static final int FONT_SIZE = 6;
+    static final int FONT_WEIGHT = 7;
+    static final int COLUMNS = 8;
+
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.codec;
+
+import static chiliad.parser.pdf.codec.BinaryFormat.*;
+import chiliad.parser.pdf.model.MImage;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import chiliad.parser.pdf.model.MVectorGraphics;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the pages of a stream written by {@link BinaryPageWriter}, one page
+ * at a time.
+ */
+public class BinaryPageReader implements Closeable {
+
+    private final InputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private final List<Integer> colors = new ArrayList<>();
+    private final int[] previousFloats = new int[COLUMNS];
+    private long version;
+    private boolean started;
+    private boolean ended;
+
+    public BinaryPageReader(InputStream in) {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+    }
+
+    /**
+     * @return The next page, null at the end of the stream.
+     * @throws IOException For an invalid or truncated stream.
+     */
+    public MPage read() throws IOException {
+        if (!started) {
+            readHeader();
+            started = true;
+        }
+        if (ended) {
+            return null;
+        }
+        int record = (int) readVarint();
+        if (record == END) {
+            ended = true;
+            return null;
+        }
+        if (record != PAGE) {
+            throw new IOException("Unknown record: " + record);
+        }
+        long pageNumber = readVarint();
+        String sourceId = readString();
+        Double width = readNumber(PAGE_WIDTH);
+        Double height = readNumber(PAGE_HEIGHT);
+        MPage page = MPage.newInstance(sourceId, pageNumber == 0 ? null : (int) (pageNumber - 1), width, height);
+
+        int images = readCount();
+        for (int i = 0; i < images; i++) {
+            page.add(readImage());
+        }
+        int tokens = readCount();
+        for (int i = 0; i < tokens; i++) {
+            page.add(readToken());
+        }
+        if (readVarint() != 0) {
+            MVectorGraphics vectorGraphics = new MVectorGraphics();
+            vectorGraphics.setSvgContent(readString());
+            page.setVectorGraphics(vectorGraphics);
+        }
+        if (version >= 2) {
+            page.setTruncation(readString());
+        }
+        return page;
+    }
+
+    /**
+     * @return Every remaining page of the stream.
+     * @throws IOException
+     */
+    public List<MPage> readAll() throws IOException {
+        List<MPage> pages = new ArrayList<>();
+        for (MPage page = read(); page != null; page = read()) {
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readHeader() throws IOException {
+        for (byte b : MAGIC) {
+            if (readByte() != b) {
+                throw new IOException("Not a binary page stream.");
+            }
+        }
+        version = readVarint();
+        if (version < FIRST_VERSION || version > VERSION) {
+            throw new IOException("Unsupported binary page format version: " + version);
+        }
+    }
+
+    private MImage readImage() throws IOException {
+        MImage image = new MImage();
+        image.setImageName(readString());
+        image.setX(readNumber(X));
+        image.setY(readNumber(Y));
+        image.setWidth(readNumber(WIDTH));
+        image.setHeight(readNumber(HEIGHT));
+        long length = readVarint();
+        if (length > 0) {
+            image.setImageBytes(readFully(toLength(length - 1)));
+        }
+        return image;
+    }
+
+    private MToken readToken() throws IOException {
+        MToken token = new MToken();
+        token.setText(readString());
+        Integer strokingColor = readColor();
+        if (strokingColor != null) {
+            token.setStrokingArgb(strokingColor);
+        }
+        Integer nonStrokingColor = readColor();
+        if (nonStrokingColor != null) {
+            token.setNonStrokingArgb(nonStrokingColor);
+        }
+        token.setFontSizeInPt(readNumber(FONT_SIZE));
+        token.setFontFamily(readString());
+        token.setFontName(readString());
+        token.setFontWeight(readNumber(FONT_WEIGHT));
+        token.setX(readNumber(X));
+        token.setY(readNumber(Y));
+        token.setWidth(readNumber(WIDTH));
+        token.setHeight(readNumber(HEIGHT));
+        return token;
+    }
+
+    private String readString() throws IOException {
+        long reference = readVarint();
+        if (reference == NULL) {
+            return null;
+        }
+        if (reference == NEW_ENTRY || reference == LITERAL) {
+            String value = new String(readFully(toLength(readVarint())), StandardCharsets.UTF_8);
+            if (reference == NEW_ENTRY) {
+                strings.add(value);
+            }
+            return value;
+        }
+        return strings.get(tableIndex(reference, strings.size()));
+    }
+
+    private Integer readColor() throws IOException {
+        long reference = readVarint();
+        if (reference == NULL) {
+            return null;
+        }
+        if (reference == NEW_ENTRY || reference == LITERAL) {
+            int argb = readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+            if (reference == NEW_ENTRY) {
+                colors.add(argb);
+            }
+            return argb;
+        }
+        return colors.get(tableIndex(reference, colors.size()));
+    }
+
+    private Double readNumber(int column) throws IOException {
+        long value = readVarint();
+        switch ((int) (value & 3)) {
+            case NUMBER_NULL:
+                return null;
+            case NUMBER_FLOAT:
+                int bits = (int) (value >>> 2) ^ previousFloats[column];
+                previousFloats[column] = bits;
+                return (double) Float.intBitsToFloat(bits);
+            case NUMBER_DOUBLE:
+                long doubleBits = 0;
+                for (int i = 0; i < 8; i++) {
+                    doubleBits = doubleBits << 8 | readByte();
+                }
+                return Double.longBitsToDouble(doubleBits);
+            default:
+                throw new IOException("Unknown number kind: " + (value & 3));
+        }
+    }
+
+    private int readCount() throws IOException {
+        return toLength(readVarint());
+    }
+
+    private static int tableIndex(long reference, int size) throws IOException {
+        long index = reference - FIRST_ENTRY;
+        if (index >= size) {
+            throw new IOException("Invalid table reference: " + reference);
+        }
+        return (int) index;
+    }
+
+    private static int toLength(long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length: " + length);
+        }
+        return (int) length;
+    }
+
+    private byte[] readFully(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Truncated binary page stream.");
+            }
+            offset += read;
+        }
+        return bytes;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated binary page stream.");
+        }
+        return b;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid varint.");
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.codec;
+
+import static chiliad.parser.pdf.codec.BinaryFormat.*;
+import chiliad.parser.pdf.model.MImage;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import chiliad.parser.pdf.model.MVectorGraphics;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes pages in the binary page format, see {@link BinaryFormat}. The
+ * tables of the repeated strings and colors are shared by the pages of the
+ * stream.
+ */
+public class BinaryPageWriter implements Closeable, Flushable {
+
+    private final OutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Integer, Integer> colors = new HashMap<>();
+    private final int[] previousFloats = new int[COLUMNS];
+    private boolean started;
+    private boolean closed;
+
+    public BinaryPageWriter(OutputStream out) {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+    }
+
+    public void write(MPage page) throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed.");
+        }
+        if (!started) {
+            out.write(MAGIC);
+            writeVarint(VERSION);
+            started = true;
+        }
+        writeVarint(PAGE);
+        writeVarint(page.getPageNumber() == null ? 0 : page.getPageNumber() + 1L);
+        writeString(page.getSourceId(), true);
+        writeNumber(PAGE_WIDTH, page.getWidth());
+        writeNumber(PAGE_HEIGHT, page.getHeight());
+
+        List<MImage> images = page.getImages();
+        writeVarint(images == null ? 0 : images.size());
+        if (images != null) {
+            for (MImage image : images) {
+                writeImage(image);
+            }
+        }
+        List<MToken> tokens = page.getTokens();
+        writeVarint(tokens == null ? 0 : tokens.size());
+        if (tokens != null) {
+            for (MToken token : tokens) {
+                writeToken(token);
+            }
+        }
+        MVectorGraphics vectorGraphics = page.getVectorGraphics();
+        writeVarint(vectorGraphics == null ? 0 : 1);
+        if (vectorGraphics != null) {
+            writeString(vectorGraphics.getSvgContent(), false);
+        }
+        writeString(page.getTruncation(), true);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the end marker and closes the stream.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!started) {
+                out.write(MAGIC);
+                writeVarint(VERSION);
+            }
+            writeVarint(END);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeImage(MImage image) throws IOException {
+        writeString(image.getImageName(), false);
+        writeNumber(X, image.getX());
+        writeNumber(Y, image.getY());
+        writeNumber(WIDTH, image.getWidth());
+        writeNumber(HEIGHT, image.getHeight());
+        byte[] bytes = image.getImageBytes();
+        if (bytes == null) {
+            writeVarint(0);
+        } else {
+            writeVarint(bytes.length + 1L);
+            out.write(bytes);
+        }
+    }
+
+    private void writeToken(MToken token) throws IOException {
+        writeString(token.getText(), false);
+        writeColor(token.getStrokingArgb());
+        writeColor(token.getNonStrokingArgb());
+        writeNumber(FONT_SIZE, token.getFontSizeInPt());
+        writeString(token.getFontFamily(), true);
+        writeString(token.getFontName(), true);
+        writeNumber(FONT_WEIGHT, token.getFontWeight());
+        writeNumber(X, token.getX());
+        writeNumber(Y, token.getY());
+        writeNumber(WIDTH, token.getWidth());
+        writeNumber(HEIGHT, token.getHeight());
+    }
+
+    private void writeString(String value, boolean shared) throws IOException {
+        if (value == null) {
+            writeVarint(NULL);
+            return;
+        }
+        if (shared) {
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarint(FIRST_ENTRY + (long) index);
+                return;
+            }
+            if (strings.size() < MAX_TABLE_SIZE) {
+                strings.put(value, strings.size());
+                writeVarint(NEW_ENTRY);
+                writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        writeVarint(LITERAL);
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeColor(Integer argb) throws IOException {
+        if (argb == null) {
+            writeVarint(NULL);
+            return;
+        }
+        Integer index = colors.get(argb);
+        if (index != null) {
+            writeVarint(FIRST_ENTRY + (long) index);
+            return;
+        }
+        writeVarint(colors.size() < MAX_TABLE_SIZE ? NEW_ENTRY : LITERAL);
+        if (colors.size() < MAX_TABLE_SIZE) {
+            colors.put(argb, colors.size());
+        }
+        out.write(argb >>> 24);
+        out.write(argb >>> 16);
+        out.write(argb >>> 8);
+        out.write(argb);
+    }
+
+    private void writeNumber(int column, Double value) throws IOException {
+        if (value == null) {
+            writeVarint(NUMBER_NULL);
+            return;
+        }
+        double d = value;
+        float f = (float) d;
+        if (f == d || Double.isNaN(d)) {
+            int bits = Float.floatToRawIntBits(f);
+            writeVarint(((bits ^ previousFloats[column]) & 0xFFFFFFFFL) << 2 | NUMBER_FLOAT);
+            previousFloats[column] = bits;
+            return;
+        }
+        writeVarint(NUMBER_DOUBLE);
+        long bits = Double.doubleToRawLongBits(d);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
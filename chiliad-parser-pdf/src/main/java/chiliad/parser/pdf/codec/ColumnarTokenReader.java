@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a file written by {@link ColumnarTokenWriter}. The file is mapped
+ * into the memory and the columns are views of the mapping, nothing is
+ * copied. The file must be smaller than 2 GB.
+ */
+public class ColumnarTokenReader {
+
+    private final ByteBuffer file;
+    private final JsonNode footer;
+
+    public ColumnarTokenReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Columnar file is too large: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.file = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.footer = readFooter();
+    }
+
+    public int getBatchCount() {
+        return footer.get("batches").size();
+    }
+
+    public Integer getPageNumber(int batch) {
+        JsonNode pageNumber = footer.get("batches").get(batch).get("pageNumber");
+        return pageNumber.isNull() ? null : pageNumber.asInt();
+    }
+
+    /**
+     * @param batch
+     * @return The truncation of the page, null if the page is complete.
+     */
+    public String getTruncation(int batch) {
+        JsonNode truncation = footer.get("batches").get(batch).get("truncation");
+        return truncation == null ? null : truncation.asText();
+    }
+
+    public int getRowCount(int batch) {
+        return footer.get("batches").get(batch).get("rows").asInt();
+    }
+
+    /**
+     * @param batch
+     * @param column Name of a float column (x, y, width, height, fontSize,
+     * fontWeight).
+     * @return The values of the column in the batch, NaN for missing values.
+     */
+    public FloatBuffer getFloatColumn(int batch, String column) {
+        return slice(footer.get("batches").get(batch).get("buffers"), checkColumn(column, ColumnarTokenWriter.FLOAT_COLUMNS)).asFloatBuffer();
+    }
+
+    /**
+     * @param batch
+     * @param column Name of a dictionary column (text, fontName, fontFamily,
+     * strokingColor, nonStrokingColor).
+     * @return The dictionary indexes of the column in the batch, -1 for
+     * missing values.
+     */
+    public IntBuffer getIndexColumn(int batch, String column) {
+        return slice(footer.get("batches").get(batch).get("buffers"), checkColumn(column, ColumnarTokenWriter.INDEX_COLUMNS)).asIntBuffer();
+    }
+
+    /**
+     * @param dictionary text or font.
+     * @param index
+     * @return The string of the dictionary, null for -1.
+     */
+    public String getString(String dictionary, int index) {
+        if (index < 0) {
+            return null;
+        }
+        JsonNode buffers = footer.get("dictionaries").get(dictionary).get("buffers");
+        IntBuffer offsets = slice(buffers, "offsets").asIntBuffer();
+        ByteBuffer data = slice(buffers, "data");
+        byte[] bytes = new byte[offsets.get(index + 1) - offsets.get(index)];
+        data.position(offsets.get(index));
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index
+     * @return The ARGB value of the color dictionary, null for -1.
+     */
+    public Integer getColor(int index) {
+        if (index < 0) {
+            return null;
+        }
+        return slice(footer.get("dictionaries").get("color").get("buffers"), "values").asIntBuffer().get(index);
+    }
+
+    private JsonNode readFooter() throws IOException {
+        byte[] magic = ColumnarTokenWriter.MAGIC;
+        int limit = file.limit();
+        if (limit < 2 * magic.length + 4 || !hasMagic(0) || !hasMagic(limit - magic.length)) {
+            throw new IOException("Not a columnar token file.");
+        }
+        int footerLength = file.getInt(limit - magic.length - 4);
+        int footerStart = limit - magic.length - 4 - footerLength;
+        if (footerLength < 0 || footerStart < magic.length) {
+            throw new IOException("Invalid footer length: " + footerLength);
+        }
+        byte[] json = new byte[footerLength];
+        ByteBuffer duplicate = file.duplicate();
+        duplicate.position(footerStart);
+        duplicate.get(json);
+        JsonNode node = new ObjectMapper().readTree(json);
+        if (node.path("version").asInt() != ColumnarTokenWriter.VERSION) {
+            throw new IOException("Unsupported columnar token file version: " + node.path("version"));
+        }
+        return node;
+    }
+
+    private boolean hasMagic(int position) {
+        byte[] magic = new byte[ColumnarTokenWriter.MAGIC.length];
+        ByteBuffer duplicate = file.duplicate();
+        duplicate.position(position);
+        duplicate.get(magic);
+        return Arrays.equals(magic, ColumnarTokenWriter.MAGIC);
+    }
+
+    private ByteBuffer slice(JsonNode buffers, String name) {
+        JsonNode location = buffers.get(name);
+        ByteBuffer duplicate = file.duplicate();
+        duplicate.position(location.get("offset").asInt());
+        duplicate.limit(location.get("offset").asInt() + location.get("length").asInt());
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String checkColumn(String column, String[] columns) {
+        if (!Arrays.asList(columns).contains(column)) {
+            throw new IllegalArgumentException("Unknown column: " + column);
+        }
+        return column;
+    }
+}
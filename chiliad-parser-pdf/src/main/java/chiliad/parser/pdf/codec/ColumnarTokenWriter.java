@@ -0,0 +1,262 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.codec;
+
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the tokens of the pages column by column, one batch per page.
+ *
+ * The file starts and ends with the {@link #MAGIC} bytes. It contains the
+ * column buffers of the batches, then the dictionaries, then a JSON footer
+ * describing the columns and the position of every buffer, followed by the
+ * footer length (int32). Every buffer is little endian and starts at a
+ * multiple of 8 bytes, so a column can be mapped and scanned in place (e.g.
+ * numpy.frombuffer), see {@link ColumnarTokenReader}.
+ *
+ * The number columns are float32, a missing value is NaN. The text, font
+ * name, font family and color columns are int32 indexes of a dictionary of
+ * the file, a missing value is -1. The strings of a dictionary are stored as
+ * int32 offsets (count + 1) and the UTF-8 data, the colors as ARGB int32.
+ */
+public class ColumnarTokenWriter implements Closeable {
+
+    public static final byte[] MAGIC = "CHCOLS01".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+
+    static final String[] FLOAT_COLUMNS = {"x", "y", "width", "height", "fontSize", "fontWeight"};
+    static final String[] INDEX_COLUMNS = {"text", "fontName", "fontFamily", "strokingColor", "nonStrokingColor"};
+    static final String[] INDEX_DICTIONARIES = {"text", "font", "font", "color", "color"};
+
+    private static final byte[] PADDING = new byte[8];
+
+    private final OutputStream out;
+    private long position;
+    private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final Map<String, Integer> texts = new HashMap<>();
+    private final List<String> textValues = new ArrayList<>();
+    private final Map<String, Integer> fonts = new HashMap<>();
+    private final List<String> fontValues = new ArrayList<>();
+    private final Map<Integer, Integer> colors = new HashMap<>();
+    private final List<Integer> colorValues = new ArrayList<>();
+
+    private final ArrayNode batches = JsonNodeFactory.instance.arrayNode();
+    private boolean closed;
+
+    public ColumnarTokenWriter(OutputStream out) throws IOException {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+        write(MAGIC, MAGIC.length);
+    }
+
+    /**
+     * Writes the tokens of the page as a batch.
+     *
+     * @param page
+     * @throws IOException
+     */
+    public void write(MPage page) throws IOException {
+        List<MToken> tokens = page.getTokens() == null ? Collections.<MToken>emptyList() : page.getTokens();
+        int rows = tokens.size();
+        ObjectNode batch = batches.addObject();
+        batch.put("pageNumber", page.getPageNumber());
+        batch.put("rows", rows);
+        if (page.isTruncated()) {
+            batch.put("truncation", page.getTruncation());
+        }
+        ObjectNode buffers = batch.putObject("buffers");
+
+        for (int column = 0; column < FLOAT_COLUMNS.length; column++) {
+            ByteBuffer b = clear(rows * 4);
+            for (MToken token : tokens) {
+                b.putFloat(floatValue(token, column));
+            }
+            writeBuffer(buffers, FLOAT_COLUMNS[column], b);
+        }
+        for (int column = 0; column < INDEX_COLUMNS.length; column++) {
+            ByteBuffer b = clear(rows * 4);
+            for (MToken token : tokens) {
+                b.putInt(indexValue(token, column));
+            }
+            writeBuffer(buffers, INDEX_COLUMNS[column], b);
+        }
+    }
+
+    /**
+     * Writes the dictionaries and the footer, then closes the stream.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            ObjectNode footer = JsonNodeFactory.instance.objectNode();
+            footer.put("version", VERSION);
+            ArrayNode columns = footer.putArray("columns");
+            for (String name : FLOAT_COLUMNS) {
+                columns.addObject().put("name", name).put("type", "float32");
+            }
+            for (int column = 0; column < INDEX_COLUMNS.length; column++) {
+                columns.addObject().put("name", INDEX_COLUMNS[column]).put("type", "int32").put("dictionary", INDEX_DICTIONARIES[column]);
+            }
+            ObjectNode dictionaries = footer.putObject("dictionaries");
+            writeStrings(dictionaries.putObject("text"), textValues);
+            writeStrings(dictionaries.putObject("font"), fontValues);
+            ObjectNode colorDictionary = dictionaries.putObject("color");
+            colorDictionary.put("type", "argb32");
+            colorDictionary.put("count", colorValues.size());
+            ByteBuffer b = clear(colorValues.size() * 4);
+            for (int argb : colorValues) {
+                b.putInt(argb);
+            }
+            writeBuffer(colorDictionary.putObject("buffers"), "values", b);
+            footer.set("batches", batches);
+
+            byte[] json = new ObjectMapper().writeValueAsBytes(footer);
+            write(json, json.length);
+            ByteBuffer length = clear(4);
+            length.putInt(json.length);
+            write(length.array(), 4);
+            write(MAGIC, MAGIC.length);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeStrings(ObjectNode dictionary, List<String> values) throws IOException {
+        dictionary.put("type", "utf8");
+        dictionary.put("count", values.size());
+        ObjectNode buffers = dictionary.putObject("buffers");
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        ByteBuffer offsets = clear((values.size() + 1) * 4);
+        int offset = 0;
+        offsets.putInt(offset);
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            offset += bytes.length;
+            offsets.putInt(offset);
+        }
+        writeBuffer(buffers, "offsets", offsets);
+        ObjectNode data = buffers.putObject("data");
+        data.put("offset", position);
+        data.put("length", offset);
+        for (byte[] bytes : encoded) {
+            write(bytes, bytes.length);
+        }
+        pad();
+    }
+
+    private static float floatValue(MToken token, int column) {
+        Double value;
+        switch (column) {
+            case 0:
+                value = token.getX();
+                break;
+            case 1:
+                value = token.getY();
+                break;
+            case 2:
+                value = token.getWidth();
+                break;
+            case 3:
+                value = token.getHeight();
+                break;
+            case 4:
+                value = token.getFontSizeInPt();
+                break;
+            default:
+                value = token.getFontWeight();
+        }
+        return value == null ? Float.NaN : value.floatValue();
+    }
+
+    private int indexValue(MToken token, int column) {
+        switch (column) {
+            case 0:
+                return index(texts, textValues, token.getText());
+            case 1:
+                return index(fonts, fontValues, token.getFontName());
+            case 2:
+                return index(fonts, fontValues, token.getFontFamily());
+            case 3:
+                return index(colors, colorValues, token.getStrokingArgb());
+            default:
+                return index(colors, colorValues, token.getNonStrokingArgb());
+        }
+    }
+
+    private static <T> int index(Map<T, Integer> indexes, List<T> values, T value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = values.size();
+            indexes.put(value, index);
+            values.add(value);
+        }
+        return index;
+    }
+
+    private ByteBuffer clear(int capacity) {
+        if (buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private void writeBuffer(ObjectNode buffers, String name, ByteBuffer b) throws IOException {
+        ObjectNode location = buffers.putObject(name);
+        location.put("offset", position);
+        location.put("length", b.position());
+        write(b.array(), b.position());
+        pad();
+    }
+
+    private void pad() throws IOException {
+        int padding = (int) (-position & 7);
+        write(PADDING, padding);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        position += length;
+    }
+}
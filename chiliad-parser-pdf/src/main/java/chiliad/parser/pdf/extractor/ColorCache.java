@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorState;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.color.PDLab;
+
+/**
+ * Converted colors of a document as packed ARGB ints (see
+ * {@link Color#getRGB()}).
+ *
+ * {@link PDColorState#getJavaColor()} converts the components with the java
+ * color space of the color space, and a new color state is set by every color
+ * operator. The cache keys the conversion by the color space and the
+ * components, so the conversion runs once per distinct color of the document.
+ *
+ * Only the color spaces identified by their COS object are cached (the device
+ * color spaces by name, the CIE based ones by their array); indexed,
+ * separation, DeviceN and pattern colors are converted every time.
+ *
+ * Not thread safe, one cache belongs to one loaded document.
+ */
+public final class ColorCache {
+
+    /**
+     * Color of a color state without components.
+     */
+    public static final int DEFAULT_ARGB = Color.BLACK.getRGB();
+
+    private final Map<ColorKey, Integer> argbByColor = new HashMap<>();
+
+    /**
+     * Reused key of the lookups, copied only when a new color is added.
+     */
+    private final ColorKey probe = new ColorKey();
+
+    /**
+     * @param colorState
+     * @return The color as packed ARGB int.
+     * @throws IOException If the color can not be converted.
+     */
+    public int toArgb(PDColorState colorState) throws IOException {
+        COSBase colorSpace = cacheKey(colorState.getColorSpace());
+        if (colorSpace == null || !probe.set(colorSpace, colorState.getCOSColorSpaceValue())) {
+            return convert(colorState);
+        }
+        Integer argb = argbByColor.get(probe);
+        if (argb == null) {
+            argb = convert(colorState);
+            argbByColor.put(probe.copy(), argb);
+        }
+        return argb;
+    }
+
+    /**
+     * @return Number of the cached colors.
+     */
+    public int size() {
+        return argbByColor.size();
+    }
+
+    private static int convert(PDColorState colorState) throws IOException {
+        Color color = colorState.getJavaColor();
+        return color == null ? DEFAULT_ARGB : color.getRGB();
+    }
+
+    private static COSBase cacheKey(PDColorSpace colorSpace) {
+        if (colorSpace instanceof PDDeviceRGB || colorSpace instanceof PDDeviceGray || colorSpace instanceof PDDeviceCMYK
+                || colorSpace instanceof PDICCBased || colorSpace instanceof PDCalRGB || colorSpace instanceof PDCalGray
+                || colorSpace instanceof PDLab) {
+            return colorSpace.getCOSObject();
+        }
+        return null;
+    }
+
+    /**
+     * Color space (by identity) and components of a color.
+     */
+    private static final class ColorKey {
+
+        private COSBase colorSpace;
+        private float[] components = new float[4];
+        private int length;
+        private int hash;
+
+        /**
+         * @return False if the components are not all numbers.
+         */
+        boolean set(COSBase colorSpace, COSArray values) {
+            if (values == null) {
+                return false;
+            }
+            int size = values.size();
+            if (components.length < size) {
+                components = new float[size];
+            }
+            int h = System.identityHashCode(colorSpace);
+            for (int i = 0; i < size; i++) {
+                COSBase value = values.getObject(i);
+                if (!(value instanceof COSNumber)) {
+                    return false;
+                }
+                components[i] = ((COSNumber) value).floatValue();
+                h = 31 * h + Float.floatToIntBits(components[i]);
+            }
+            this.colorSpace = colorSpace;
+            this.length = size;
+            this.hash = h;
+            return true;
+        }
+
+        ColorKey copy() {
+            ColorKey copy = new ColorKey();
+            copy.colorSpace = colorSpace;
+            copy.components = Arrays.copyOf(components, length);
+            copy.length = length;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ColorKey)) {
+                return false;
+            }
+            ColorKey other = (ColorKey) obj;
+            if (colorSpace != other.colorSpace || length != other.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (Float.floatToIntBits(components[i]) != Float.floatToIntBits(other.components[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import chiliad.parser.pdf.jfr.XObjectInvokeEvent;
+import chiliad.parser.pdf.metrics.OperatorProfiler;
+import chiliad.parser.pdf.metrics.ParserMetrics;
+import chiliad.parser.pdf.model.MPage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Stack;
+import org.apache.commons.lang.StringUtils;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDExtendedGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.PDGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.xobject.PDXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.PDFOperator;
+import org.apache.pdfbox.util.PDFStreamEngine;
+import org.apache.pdfbox.util.ResourceLoader;
+import org.apache.pdfbox.util.TextPosition;
+import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class of the extractors interpreting the page content stream.
+ *
+ * An extractor works either alone, interpreting the stream itself, or as a
+ * member of a {@link FusedExtractor}. In the latter case the stream is
+ * interpreted once by the fused engine and the graphics state, resources and
+ * sub stream processing are delegated to it, so the operators of the
+ * extractor see the single shared state.
+ */
+public abstract class ContentStreamExtractor extends PDFStreamEngine implements PageExtractor {
+
+    final static Logger LOG = LoggerFactory.getLogger(ContentStreamExtractor.class);
+
+    private final Properties operatorTable;
+
+    private PDFStreamEngine owner;
+
+    private FontRegistry fontRegistry = new FontRegistry();
+
+    private ColorCache colorCache = new ColorCache();
+
+    private PageBudget pageBudget;
+
+    private ParserMetrics metrics = ParserMetrics.NOOP;
+
+    /**
+     * Number of the streams being interpreted, the page content stream
+     * included.
+     */
+    private int streamDepth;
+
+    protected ContentStreamExtractor(String operatorTableName) throws IOException {
+        this(ResourceLoader.loadProperties(operatorTableName, true));
+    }
+
+    private ContentStreamExtractor(Properties operatorTable) throws IOException {
+        super(operatorTable);
+        this.operatorTable = operatorTable;
+    }
+
+    /**
+     * Called before the content stream of the page is interpreted.
+     *
+     * @param page
+     * @throws IOException
+     */
+    protected abstract void startPage(PDPage page) throws IOException;
+
+    /**
+     * Called after the content stream of the page is interpreted.
+     *
+     * @param page
+     * @param pageContent
+     * @return The page content completed with the extracted information.
+     * @throws IOException
+     */
+    protected abstract MPage endPage(PDPage page, MPage pageContent) throws IOException;
+
+    /**
+     * Processes the content stream of the page within the page budget. When
+     * the budget is exhausted the rest of the stream is skipped, the page is
+     * completed by {@link #endPage(PDPage, MPage)} as usual.
+     *
+     * @param page
+     * @param resources
+     * @param stream
+     * @throws IOException
+     */
+    protected void processPageStream(PDPage page, PDResources resources, COSStream stream) throws IOException {
+        try {
+            processStream(page, resources, stream);
+        } catch (PageTruncatedException ex) {
+            LOG.debug("Page truncated: {}", ex.getTruncation().getName());
+        }
+    }
+
+    /**
+     * @return The operator table the extractor was created with.
+     */
+    Properties getOperatorTable() {
+        return operatorTable;
+    }
+
+    static OperatorProcessor newOperatorProcessor(String className) {
+        try {
+            return Class.forName(className).asSubclass(OperatorProcessor.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new ExtractorException("Failed to create operator processor '" + className + "'.", ex);
+        }
+    }
+
+    void attach(PDFStreamEngine fusedEngine) {
+        if (owner != null) {
+            throw new IllegalStateException("The extractor is already part of a fused extractor.");
+        }
+        this.owner = fusedEngine;
+    }
+
+    @Override
+    public void setFontRegistry(FontRegistry fontRegistry) {
+        this.fontRegistry = fontRegistry;
+    }
+
+    /**
+     * @return The font registry of the document, a private one until the
+     * parser sets the registry of the document.
+     */
+    protected FontRegistry getFontRegistry() {
+        return fontRegistry;
+    }
+
+    @Override
+    public void setColorCache(ColorCache colorCache) {
+        this.colorCache = colorCache;
+    }
+
+    /**
+     * @return The color cache of the document, a private one until the
+     * parser sets the cache of the document.
+     */
+    protected ColorCache getColorCache() {
+        return colorCache;
+    }
+
+    @Override
+    public void setPageBudget(PageBudget pageBudget) {
+        this.pageBudget = pageBudget;
+    }
+
+    @Override
+    public void setMetrics(ParserMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    protected ParserMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers the operators of the table again, wrapped by the profiler or,
+     * without profiler, as they were. A member of a fused extractor is
+     * profiled by the fused engine.
+     *
+     * @param profiler
+     */
+    @Override
+    public void setOperatorProfiler(OperatorProfiler profiler) {
+        if (owner != null) {
+            return;
+        }
+        ProfilingOperator.Nesting nesting = new ProfilingOperator.Nesting();
+        for (String operation : operatorTable.stringPropertyNames()) {
+            String className = StringUtils.trimToEmpty(operatorTable.getProperty(operation));
+            if (!className.isEmpty()) {
+                OperatorProcessor processor = newOperatorProcessor(className);
+                registerOperatorProcessor(operation, profiler == null ? processor : new ProfilingOperator(operation, processor, profiler, nesting));
+            }
+        }
+    }
+
+    /**
+     * @return True if the rest of the page is skipped, because the page
+     * budget is exhausted.
+     */
+    protected boolean isPageStopped() {
+        return pageBudget != null && pageBudget.isStopped();
+    }
+
+    protected boolean isFused() {
+        return owner != null;
+    }
+
+    /**
+     * Receives a text position of the fused engine, processTextPosition is
+     * not accessible from it.
+     *
+     * @param text
+     */
+    void acceptTextPosition(TextPosition text) {
+        processTextPosition(text);
+    }
+
+    @Override
+    public void processSubStream(PDPage aPage, PDResources resources, COSStream cosStream) throws IOException {
+        if (owner != null) {
+            owner.processSubStream(aPage, resources, cosStream);
+            return;
+        }
+        if (pageBudget != null && !pageBudget.enterStream()) {
+            return;
+        }
+        XObjectInvokeEvent event = new XObjectInvokeEvent();
+        event.begin();
+        streamDepth++;
+        try {
+            super.processSubStream(aPage, resources, cosStream);
+        } finally {
+            streamDepth--;
+            if (pageBudget != null) {
+                pageBudget.exitStream();
+            }
+            if (streamDepth > 0 && event.isEnabled()) {
+                event.commit(getClass().getSimpleName(), streamDepth, cosStream.getFilteredLength());
+            }
+        }
+    }
+
+    @Override
+    protected void processOperator(PDFOperator operator, List<COSBase> arguments) throws IOException {
+        // the operators of a member are counted by the fused engine
+        if (owner == null && pageBudget != null) {
+            pageBudget.checkOperator();
+        }
+        super.processOperator(operator, arguments);
+    }
+
+    @Override
+    public void processOperator(String operation, List<COSBase> arguments) throws IOException {
+        if (owner == null) {
+            super.processOperator(operation, arguments);
+        } else {
+            owner.processOperator(operation, arguments);
+        }
+    }
+
+    @Override
+    public PDGraphicsState getGraphicsState() {
+        return owner == null ? super.getGraphicsState() : owner.getGraphicsState();
+    }
+
+    @Override
+    public void setGraphicsState(PDGraphicsState value) {
+        if (owner == null) {
+            super.setGraphicsState(value);
+        } else {
+            owner.setGraphicsState(value);
+        }
+    }
+
+    @Override
+    public Stack<PDGraphicsState> getGraphicsStack() {
+        return owner == null ? super.getGraphicsStack() : owner.getGraphicsStack();
+    }
+
+    @Override
+    public void setGraphicsStack(Stack<PDGraphicsState> value) {
+        if (owner == null) {
+            super.setGraphicsStack(value);
+        } else {
+            owner.setGraphicsStack(value);
+        }
+    }
+
+    @Override
+    public PDResources getResources() {
+        return owner == null ? super.getResources() : owner.getResources();
+    }
+
+    @Override
+    public PDPage getCurrentPage() {
+        return owner == null ? super.getCurrentPage() : owner.getCurrentPage();
+    }
+
+    @Override
+    public Map<String, PDColorSpace> getColorSpaces() {
+        return owner == null ? super.getColorSpaces() : owner.getColorSpaces();
+    }
+
+    @Override
+    public Map<String, PDXObject> getXObjects() {
+        return owner == null ? super.getXObjects() : owner.getXObjects();
+    }
+
+    @Override
+    public Map<String, PDFont> getFonts() {
+        return owner == null ? fontRegistry.getFonts(super.getResources()) : owner.getFonts();
+    }
+
+    @Override
+    public Map<String, PDExtendedGraphicsState> getGraphicsStates() {
+        return owner == null ? super.getGraphicsStates() : owner.getGraphicsStates();
+    }
+
+    @Override
+    public Matrix getTextMatrix() {
+        return owner == null ? super.getTextMatrix() : owner.getTextMatrix();
+    }
+
+    @Override
+    public Matrix getTextLineMatrix() {
+        return owner == null ? super.getTextLineMatrix() : owner.getTextLineMatrix();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDFontFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fonts of a document, created once per font dictionary.
+ *
+ * Every call of {@link PDResources#getFonts()} on a fresh resources object
+ * creates new pdfbox fonts, so the widths, encodings and ToUnicode CMaps are
+ * parsed again on every page. The registry keys the fonts by the identity of
+ * their COS dictionary, which the COS document keeps for the whole document,
+ * and gives every font a small int id. The descriptor values needed by the
+ * tokens are resolved at registration.
+ *
+ * Not thread safe, one registry belongs to one loaded document.
+ */
+public final class FontRegistry {
+
+    final static Logger LOG = LoggerFactory.getLogger(FontRegistry.class);
+
+    private static final float DEFAULT_FONT_WEIGHT = 300f;
+
+    private final Map<COSBase, Integer> fontIds = new IdentityHashMap<>();
+    private final List<RegisteredFont> fonts = new ArrayList<>();
+    private final Map<COSDictionary, Map<String, PDFont>> fontsByResources = new IdentityHashMap<>();
+
+    /**
+     * The font resources by name, a replacement of
+     * {@link PDResources#getFonts()} returning the registered fonts.
+     *
+     * @param resources
+     * @return The fonts of the resources, not modifiable.
+     */
+    public Map<String, PDFont> getFonts(PDResources resources) {
+        if (resources == null) {
+            return Collections.emptyMap();
+        }
+        COSDictionary resourceDictionary = resources.getCOSDictionary();
+        Map<String, PDFont> resourceFonts = fontsByResources.get(resourceDictionary);
+        if (resourceFonts == null) {
+            resourceFonts = resolveFonts(resourceDictionary);
+            fontsByResources.put(resourceDictionary, resourceFonts);
+        }
+        return resourceFonts;
+    }
+
+    /**
+     * @param font
+     * @return The id of the font, the font is registered when it is not known
+     * yet (e.g. the default font pdfbox falls back to).
+     */
+    public int getId(PDFont font) {
+        Integer id = fontIds.get(font.getCOSObject());
+        if (id == null) {
+            id = register(font);
+        }
+        return id;
+    }
+
+    public PDFont getFont(int id) {
+        return fonts.get(id).font;
+    }
+
+    /**
+     * @param id
+     * @return The font family of the descriptor, empty without descriptor.
+     */
+    public String getFontFamily(int id) {
+        return fonts.get(id).family;
+    }
+
+    /**
+     * @param id
+     * @return The font name of the descriptor, empty without descriptor.
+     */
+    public String getFontName(int id) {
+        return fonts.get(id).name;
+    }
+
+    /**
+     * @param id
+     * @return The font weight of the descriptor, 300 without descriptor.
+     */
+    public float getFontWeight(int id) {
+        return fonts.get(id).weight;
+    }
+
+    /**
+     * @return Number of the registered fonts.
+     */
+    public int size() {
+        return fonts.size();
+    }
+
+    private Map<String, PDFont> resolveFonts(COSDictionary resourceDictionary) {
+        COSBase fontDictionary = resourceDictionary.getDictionaryObject(COSName.FONT);
+        if (!(fontDictionary instanceof COSDictionary)) {
+            return Collections.emptyMap();
+        }
+        COSDictionary fontResources = (COSDictionary) fontDictionary;
+        Map<String, PDFont> resourceFonts = new HashMap<>();
+        for (COSName fontName : fontResources.keySet()) {
+            COSBase font = fontResources.getDictionaryObject(fontName);
+            if (font instanceof COSDictionary) {
+                PDFont pdFont = resolveFont((COSDictionary) font);
+                if (pdFont != null) {
+                    resourceFonts.put(fontName.getName(), pdFont);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(resourceFonts);
+    }
+
+    private PDFont resolveFont(COSDictionary fontDictionary) {
+        Integer id = fontIds.get(fontDictionary);
+        if (id != null) {
+            return getFont(id);
+        }
+        try {
+            PDFont font = PDFontFactory.createFont(fontDictionary);
+            register(font);
+            return font;
+        } catch (IOException ex) {
+            LOG.error("Failed to create font.", ex);
+            return null;
+        }
+    }
+
+    private int register(PDFont font) {
+        int id = fonts.size();
+        fonts.add(new RegisteredFont(font));
+        fontIds.put(font.getCOSObject(), id);
+        return id;
+    }
+
+    private static final class RegisteredFont {
+
+        private final PDFont font;
+        private final String family;
+        private final String name;
+        private final float weight;
+
+        RegisteredFont(PDFont font) {
+            this.font = font;
+            PDFontDescriptor descriptor = font.getFontDescriptor();
+            if (descriptor == null) {
+                this.family = "";
+                this.name = "";
+                this.weight = DEFAULT_FONT_WEIGHT;
+            } else {
+                this.family = descriptor.getFontFamily();
+                this.name = descriptor.getFontName();
+                this.weight = descriptor.getFontWeight();
+            }
+        }
+    }
+}
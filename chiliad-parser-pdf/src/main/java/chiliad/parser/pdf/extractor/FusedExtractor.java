@@ -0,0 +1,341 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import chiliad.parser.pdf.jfr.XObjectInvokeEvent;
+import chiliad.parser.pdf.metrics.OperatorProfiler;
+import chiliad.parser.pdf.metrics.ParserMetrics;
+import chiliad.parser.pdf.model.MPage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.commons.lang.StringUtils;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.util.PDFOperator;
+import org.apache.pdfbox.util.PDFStreamEngine;
+import org.apache.pdfbox.util.TextPosition;
+import org.apache.pdfbox.util.operator.OperatorProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs several content stream extractors in one pass. The content stream of
+ * the page is decoded, tokenized and interpreted once, with a single graphics
+ * state stack, and every operator is dispatched to the member extractors.
+ *
+ * The operator tables of the members are merged. The pdfbox operators only
+ * change the graphics state, they are registered once and bound to this
+ * engine. The operators of the extractors are bound to their extractor; when
+ * an extractor has its own operator for an operation it replaces the pdfbox
+ * one, since these operators extend or subsume the pdfbox implementation (e.g.
+ * 'Do' of the image extractor processes the forms as well).
+ *
+ * While an operator runs, only the members having the operation in their own
+ * table are active. This way a sub stream (e.g. a form invoked by 'Do')
+ * reaches the same extractors as in separate passes.
+ */
+public class FusedExtractor extends PDFStreamEngine implements PageExtractor {
+
+    final static Logger LOG = LoggerFactory.getLogger(FusedExtractor.class);
+
+    private static final String PDFBOX_OPERATOR_PACKAGE = "org.apache.pdfbox.";
+
+    private static final int MAX_MEMBERS = Integer.SIZE - 1;
+
+    private final ContentStreamExtractor[] members;
+
+    private final int allMembers;
+
+    private final Map<String, OperatorProcessor> operators;
+
+    /**
+     * Bit set of the members receiving the operators and text positions.
+     */
+    private int activeMembers;
+
+    private FontRegistry fontRegistry = new FontRegistry();
+
+    private PageBudget pageBudget;
+
+    /**
+     * Number of the streams being interpreted, the page content stream
+     * included.
+     */
+    private int streamDepth;
+
+    public FusedExtractor(ContentStreamExtractor... members) {
+        if (members.length > MAX_MEMBERS) {
+            throw new IllegalArgumentException("Too many extractors to fuse: " + members.length);
+        }
+        this.members = members.clone();
+        this.allMembers = (1 << members.length) - 1;
+        this.activeMembers = allMembers;
+        for (ContentStreamExtractor member : members) {
+            member.attach(this);
+            member.setFontRegistry(fontRegistry);
+        }
+        this.operators = mergeOperatorTables();
+        operators.forEach(this::registerOperatorProcessor);
+    }
+
+    public List<ContentStreamExtractor> getMembers() {
+        return Collections.unmodifiableList(Arrays.asList(members));
+    }
+
+    @Override
+    public MPage extract(PDPage pageToExtract, MPage pageContent) {
+        try {
+            if (pageToExtract.getContents() == null) {
+                throw new ExtractorException("The PDPage content is null.");
+            }
+            for (ContentStreamExtractor member : members) {
+                member.startPage(pageToExtract);
+            }
+            try {
+                processStream(pageToExtract, pageToExtract.findResources(), pageToExtract.getContents().getStream());
+            } catch (PageTruncatedException ex) {
+                LOG.debug("Page truncated: {}", ex.getTruncation().getName());
+            }
+            MPage result = pageContent;
+            for (int i = 0; i < members.length; i++) {
+                // e.g. annotation appearance streams are only for the member finishing the page
+                activeMembers = 1 << i;
+                result = members[i].endPage(pageToExtract, result);
+            }
+            return result;
+        } catch (IOException ex) {
+            throw new ExtractorException("Failed to extract page in a single pass.", ex);
+        } finally {
+            activeMembers = allMembers;
+        }
+    }
+
+    @Override
+    public void setFontRegistry(FontRegistry fontRegistry) {
+        this.fontRegistry = fontRegistry;
+        for (ContentStreamExtractor member : members) {
+            member.setFontRegistry(fontRegistry);
+        }
+    }
+
+    @Override
+    public void setColorCache(ColorCache colorCache) {
+        for (ContentStreamExtractor member : members) {
+            member.setColorCache(colorCache);
+        }
+    }
+
+    /**
+     * The budget is checked by this engine, the members only see it to know
+     * whether the page is stopped.
+     *
+     * @param pageBudget
+     */
+    @Override
+    public void setPageBudget(PageBudget pageBudget) {
+        this.pageBudget = pageBudget;
+        for (ContentStreamExtractor member : members) {
+            member.setPageBudget(pageBudget);
+        }
+    }
+
+    @Override
+    public void setMetrics(ParserMetrics metrics) {
+        for (ContentStreamExtractor member : members) {
+            member.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * The merged operators are profiled, an operator of several members is
+     * measured once with all of them.
+     *
+     * @param profiler
+     */
+    @Override
+    public void setOperatorProfiler(OperatorProfiler profiler) {
+        ProfilingOperator.Nesting nesting = new ProfilingOperator.Nesting();
+        operators.forEach((operation, processor) -> registerOperatorProcessor(operation,
+                profiler == null ? processor : new ProfilingOperator(operation, processor, profiler, nesting)));
+    }
+
+    /**
+     * @return The fingerprints of the members, the same as extracting with
+     * the members one by one.
+     */
+    @Override
+    public String getFingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        for (ContentStreamExtractor member : members) {
+            if (fingerprint.length() > 0) {
+                fingerprint.append(',');
+            }
+            fingerprint.append(member.getFingerprint());
+        }
+        return fingerprint.toString();
+    }
+
+    @Override
+    public Map<String, PDFont> getFonts() {
+        return fontRegistry.getFonts(getResources());
+    }
+
+    @Override
+    public void reset() {
+        for (ContentStreamExtractor member : members) {
+            member.reset();
+        }
+        super.resetEngine();
+    }
+
+    @Override
+    public void processSubStream(PDPage aPage, PDResources resources, COSStream cosStream) throws IOException {
+        if (pageBudget != null && !pageBudget.enterStream()) {
+            return;
+        }
+        XObjectInvokeEvent event = new XObjectInvokeEvent();
+        event.begin();
+        streamDepth++;
+        try {
+            super.processSubStream(aPage, resources, cosStream);
+        } finally {
+            streamDepth--;
+            if (pageBudget != null) {
+                pageBudget.exitStream();
+            }
+            if (streamDepth > 0 && event.isEnabled()) {
+                event.commit(getClass().getSimpleName(), streamDepth, cosStream.getFilteredLength());
+            }
+        }
+    }
+
+    @Override
+    protected void processOperator(PDFOperator operator, List<COSBase> arguments) throws IOException {
+        if (pageBudget != null) {
+            pageBudget.checkOperator();
+        }
+        super.processOperator(operator, arguments);
+    }
+
+    @Override
+    protected void processTextPosition(TextPosition text) {
+        for (int i = 0; i < members.length; i++) {
+            if ((activeMembers & (1 << i)) != 0) {
+                members[i].acceptTextPosition(text);
+            }
+        }
+    }
+
+    private Map<String, OperatorProcessor> mergeOperatorTables() {
+        Map<String, MergedOperator> merged = new LinkedHashMap<>();
+        for (int i = 0; i < members.length; i++) {
+            Properties table = members[i].getOperatorTable();
+            for (String operation : table.stringPropertyNames()) {
+                String className = StringUtils.trimToEmpty(table.getProperty(operation));
+                if (!className.isEmpty()) {
+                    merged.computeIfAbsent(operation, op -> new MergedOperator()).add(i, className);
+                }
+            }
+        }
+        Map<String, OperatorProcessor> operators = new LinkedHashMap<>();
+        merged.forEach((operation, operator) -> operators.put(operation, operator.build()));
+        return operators;
+    }
+
+    /**
+     * Collects the operator classes of one operation from the operator tables.
+     */
+    private final class MergedOperator {
+
+        private String sharedClassName;
+        private final Map<String, Integer> memberClassNames = new LinkedHashMap<>();
+        private int handlers;
+
+        void add(int member, String className) {
+            handlers |= 1 << member;
+            if (className.startsWith(PDFBOX_OPERATOR_PACKAGE)) {
+                sharedClassName = className;
+            } else {
+                memberClassNames.putIfAbsent(className, member);
+            }
+        }
+
+        OperatorProcessor build() {
+            if (memberClassNames.isEmpty()) {
+                return new DispatchingOperator(handlers, new OperatorProcessor[]{ContentStreamExtractor.newOperatorProcessor(sharedClassName)}, new int[]{allMembers});
+            }
+            OperatorProcessor[] processors = new OperatorProcessor[memberClassNames.size()];
+            int[] owners = new int[memberClassNames.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : memberClassNames.entrySet()) {
+                processors[i] = ContentStreamExtractor.newOperatorProcessor(entry.getKey());
+                processors[i].setContext(members[entry.getValue()]);
+                owners[i] = 1 << entry.getValue();
+                i++;
+            }
+            return new DispatchingOperator(handlers, processors, owners);
+        }
+    }
+
+    /**
+     * Forwards the operator to the processors of the active members. The
+     * shared pdfbox processor is bound to the fused engine and runs whenever
+     * any of the members is active.
+     */
+    private final class DispatchingOperator extends OperatorProcessor {
+
+        private final int handlers;
+        private final OperatorProcessor[] processors;
+        private final int[] owners;
+
+        DispatchingOperator(int handlers, OperatorProcessor[] processors, int[] owners) {
+            this.handlers = handlers;
+            this.processors = processors;
+            this.owners = owners;
+        }
+
+        @Override
+        public void setContext(PDFStreamEngine ctx) {
+            super.setContext(ctx);
+            if (owners.length == 1 && owners[0] == allMembers) {
+                processors[0].setContext(ctx);
+            }
+        }
+
+        @Override
+        public void process(PDFOperator operator, List<COSBase> arguments) throws IOException {
+            final int previous = activeMembers;
+            activeMembers = previous & handlers;
+            try {
+                for (int i = 0; i < processors.length; i++) {
+                    if ((previous & owners[i]) != 0) {
+                        processors[i].process(operator, arguments);
+                    }
+                }
+            } finally {
+                activeMembers = previous;
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits of the extraction of one page. The content stream extractors check
+ * the budget before every operator; when the time or the number of operators
+ * is exceeded, or the parser is cancelled, the rest of the page is skipped and
+ * the extracted part is completed as usual. Forms nested deeper than the
+ * maximal depth are skipped, the rest of the page is still extracted.
+ *
+ * The budget is shared by the extractors of the page, the operators of
+ * separate passes add up.
+ */
+public final class PageBudget {
+
+    /**
+     * The reason of the truncation of a page.
+     */
+    public enum Truncation {
+
+        TIME, OPERATORS, XOBJECT_DEPTH, CANCELLED;
+
+        /**
+         * @return The name written to the outputs.
+         */
+        public String getName() {
+            return name().toLowerCase();
+        }
+    }
+
+    public static final long UNLIMITED = -1;
+
+    /**
+     * Reading the clock per operator would cost more than most operators.
+     */
+    private static final int TIME_CHECK_INTERVAL = 32;
+
+    private final long maxNanos;
+    private final long maxOperators;
+    private final int maxXObjectDepth;
+    private final BooleanSupplier cancelled;
+    private final long startNanos;
+
+    private long operators;
+    private int streamDepth;
+    private Truncation truncation;
+    private boolean stopped;
+
+    /**
+     * The clock starts when the budget is created.
+     *
+     * @param maxMillis Maximal time of the page or {@link #UNLIMITED}.
+     * @param maxOperators Maximal number of operators or {@link #UNLIMITED}.
+     * @param maxXObjectDepth Maximal nesting of forms, 0 skips every form, or
+     * {@link #UNLIMITED}.
+     * @param cancelled Checked before every operator.
+     */
+    public PageBudget(long maxMillis, long maxOperators, int maxXObjectDepth, BooleanSupplier cancelled) {
+        this.maxNanos = maxMillis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        this.maxOperators = maxOperators < 0 ? Long.MAX_VALUE : maxOperators;
+        this.maxXObjectDepth = maxXObjectDepth < 0 ? Integer.MAX_VALUE : maxXObjectDepth;
+        this.cancelled = cancelled;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Called before an operator is processed.
+     *
+     * Once the budget is exhausted every call throws, since pdfbox logs and
+     * ignores the exceptions of the operators and the exception of a form
+     * operator (e.g. 'Do') would not stop the enclosing stream.
+     *
+     * @throws PageTruncatedException If the rest of the page has to be
+     * skipped.
+     */
+    public void checkOperator() {
+        if (stopped) {
+            throw new PageTruncatedException(truncation);
+        }
+        operators++;
+        if (cancelled.getAsBoolean()) {
+            stop(Truncation.CANCELLED);
+        } else if (operators > maxOperators) {
+            stop(Truncation.OPERATORS);
+        } else if (operators % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - startNanos > maxNanos) {
+            stop(Truncation.TIME);
+        }
+    }
+
+    /**
+     * Called before a (sub) stream is processed, the content stream of the
+     * page is the outermost one.
+     *
+     * @return False if the stream has to be skipped, then
+     * {@link #exitStream()} must not be called.
+     */
+    public boolean enterStream() {
+        if (streamDepth > maxXObjectDepth) {
+            truncate(Truncation.XOBJECT_DEPTH);
+            return false;
+        }
+        streamDepth++;
+        return true;
+    }
+
+    public void exitStream() {
+        streamDepth--;
+    }
+
+    /**
+     * @return The first reason the page was truncated, null if the page is
+     * complete.
+     */
+    public Truncation getTruncation() {
+        return truncation;
+    }
+
+    /**
+     * @return True if the rest of the page is skipped.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public long getOperators() {
+        return operators;
+    }
+
+    private void stop(Truncation reason) {
+        truncate(reason);
+        stopped = true;
+        throw new PageTruncatedException(reason);
+    }
+
+    private void truncate(Truncation reason) {
+        if (truncation == null) {
+            truncation = reason;
+        }
+    }
+}
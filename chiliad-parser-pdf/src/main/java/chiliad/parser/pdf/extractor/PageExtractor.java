@@ -15,6 +15,8 @@
  */
 package chiliad.parser.pdf.extractor;
 
+import chiliad.parser.pdf.metrics.OperatorProfiler;
+import chiliad.parser.pdf.metrics.ParserMetrics;
 import chiliad.parser.pdf.model.MPage;
 import org.apache.pdfbox.pdmodel.PDPage;
 
@@ -23,4 +25,58 @@ public interface PageExtractor {
     MPage extract(PDPage pageToExtract, MPage pageContent) throws ExtractorException;
 
     void reset();
+
+    /**
+     * Sets the font registry of the document the pages are extracted from.
+     * Extractors not resolving fonts ignore it.
+     *
+     * @param fontRegistry
+     */
+    default void setFontRegistry(FontRegistry fontRegistry) {
+    }
+
+    /**
+     * Sets the color cache of the document the pages are extracted from.
+     * Extractors not converting colors ignore it.
+     *
+     * @param colorCache
+     */
+    default void setColorCache(ColorCache colorCache) {
+    }
+
+    /**
+     * Sets the budget of the next page, null for an unlimited extraction.
+     * Extractors not interpreting content streams ignore it.
+     *
+     * @param pageBudget
+     */
+    default void setPageBudget(PageBudget pageBudget) {
+    }
+
+    /**
+     * Sets the metrics receiving the measurements of the extractor, e.g. the
+     * number of glyphs of a page.
+     *
+     * @param metrics
+     */
+    default void setMetrics(ParserMetrics metrics) {
+    }
+
+    /**
+     * Sets the profiler measuring every content stream operator, null to stop
+     * profiling. Extractors not interpreting content streams ignore it.
+     *
+     * @param profiler
+     */
+    default void setOperatorProfiler(OperatorProfiler profiler) {
+    }
+
+    /**
+     * @return Identifies the extractor and the settings changing its result,
+     * pages extracted with a different fingerprint are not reused from a
+     * page cache.
+     */
+    default String getFingerprint() {
+        return getClass().getName();
+    }
 }
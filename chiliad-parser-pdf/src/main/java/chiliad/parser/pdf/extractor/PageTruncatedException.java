@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import chiliad.parser.pdf.extractor.PageBudget.Truncation;
+
+/**
+ * Thrown when the budget of the page is exhausted, the content stream
+ * extractors catch it and complete the page with the extracted part.
+ */
+public class PageTruncatedException extends ExtractorException {
+
+    private static final long serialVersionUID = 4127761862313985027L;
+
+    private final Truncation truncation;
+
+    public PageTruncatedException(Truncation truncation) {
+        super("The page is truncated: " + truncation.getName());
+        this.truncation = truncation;
+    }
+
+    public Truncation getTruncation() {
+        return truncation;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import chiliad.parser.pdf.metrics.OperatorProfiler;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.util.PDFOperator;
+import org.apache.pdfbox.util.PDFStreamEngine;
+import org.apache.pdfbox.util.operator.OperatorProcessor;
+
+/**
+ * Measures the invocations of an operator processor for the
+ * {@link OperatorProfiler}.
+ */
+final class ProfilingOperator extends OperatorProcessor {
+
+    private final String operation;
+    private final OperatorProcessor processor;
+    private final OperatorProfiler profiler;
+    private final Nesting nesting;
+
+    /**
+     * @param operation
+     * @param processor
+     * @param profiler
+     * @param nesting Shared by the operators of a stream engine.
+     */
+    ProfilingOperator(String operation, OperatorProcessor processor, OperatorProfiler profiler, Nesting nesting) {
+        this.operation = operation;
+        this.processor = processor;
+        this.profiler = profiler;
+        this.nesting = nesting;
+    }
+
+    @Override
+    public void setContext(PDFStreamEngine ctx) {
+        super.setContext(ctx);
+        processor.setContext(ctx);
+    }
+
+    @Override
+    public void process(PDFOperator operator, List<COSBase> arguments) throws IOException {
+        int depth = nesting.enter();
+        long start = System.nanoTime();
+        try {
+            processor.process(operator, arguments);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            long nestedNanos = nesting.exit(nanos);
+            profiler.record(operation, nanos, nanos - nestedNanos, depth);
+        }
+    }
+
+    /**
+     * The operators being processed by a stream engine, the time of the
+     * nested operators is collected for each of them.
+     */
+    static final class Nesting {
+
+        private long[] nestedNanos = new long[8];
+        private int depth;
+
+        /**
+         * @return The depth of the operator entered.
+         */
+        int enter() {
+            if (depth == nestedNanos.length) {
+                nestedNanos = Arrays.copyOf(nestedNanos, depth * 2);
+            }
+            nestedNanos[depth] = 0;
+            return depth++;
+        }
+
+        /**
+         * @param nanos Time of the operator exited.
+         * @return Time of the operators nested in the exited one.
+         */
+        long exit(long nanos) {
+            depth--;
+            if (depth > 0) {
+                nestedNanos[depth - 1] += nanos;
+            }
+            return nestedNanos[depth];
+        }
+    }
+}
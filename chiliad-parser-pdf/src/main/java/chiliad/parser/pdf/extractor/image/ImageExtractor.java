@@ -15,8 +15,8 @@
  */
 package chiliad.parser.pdf.extractor.image;
 
+import chiliad.parser.pdf.extractor.ContentStreamExtractor;
 import chiliad.parser.pdf.extractor.ExtractorException;
-import chiliad.parser.pdf.extractor.PageExtractor;
 import chiliad.parser.pdf.model.MImage;
 import chiliad.parser.pdf.model.MPage;
 import com.google.common.collect.ImmutableList;
@@ -26,12 +26,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.util.PDFStreamEngine;
-import org.apache.pdfbox.util.ResourceLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ImageExtractor extends PDFStreamEngine implements PageExtractor {
+public class ImageExtractor extends ContentStreamExtractor {
 
     final static Logger LOG = LoggerFactory.getLogger(ImageExtractor.class);
 
@@ -39,8 +37,7 @@ public class ImageExtractor extends PDFStreamEngine implements PageExtractor {
     private boolean onlyDimension = false;
 
     public ImageExtractor() throws IOException {
-        super(ResourceLoader.loadProperties(
-                "ImageExtractor.properties", true));
+        super("ImageExtractor.properties");
     }
 
     public boolean isOnlyDimension() {
@@ -51,21 +48,45 @@ public class ImageExtractor extends PDFStreamEngine implements PageExtractor {
         this.onlyDimension = onlyDimension;
     }
 
+    @Override
+    public String getFingerprint() {
+        return getClass().getName() + "(onlyDimension=" + onlyDimension + ")";
+    }
+
     @Override
     public MPage extract(PDPage pageToExtract, MPage pageContent) {
         try {
             if (pageToExtract.getContents() == null) {
                 throw new IllegalStateException("The PDPage content is null.");
             }
-            processStream(pageToExtract, pageToExtract.findResources(), pageToExtract.getContents().getStream());
-            pageContent.addImages(getMImages());
-            return pageContent;
+            startPage(pageToExtract);
+            processPageStream(pageToExtract, pageToExtract.findResources(), pageToExtract.getContents().getStream());
+            return endPage(pageToExtract, pageContent);
         } catch (IOException ex) {
             throw new ExtractorException("Failed to extract images.", ex);
         }
 
     }
 
+    @Override
+    protected void startPage(PDPage page) {
+    }
+
+    @Override
+    protected MPage endPage(PDPage page, MPage pageContent) {
+        List<MImage> mImages = getMImages();
+        pageContent.addImages(mImages);
+        if (getMetrics().isEnabled()) {
+            long imageBytes = 0;
+            for (MImage image : mImages) {
+                imageBytes += image.getImageBytes() == null ? 0 : image.getImageBytes().length;
+            }
+            getMetrics().record("image.count", mImages.size());
+            getMetrics().record("image.bytes", imageBytes);
+        }
+        return pageContent;
+    }
+
     @Override
     public void reset() {
         super.resetEngine();
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor.text;
+
+import chiliad.parser.pdf.extractor.FontRegistry;
+import java.util.Arrays;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.util.TextPosition;
+
+/**
+ * Glyphs of a page stored column-wise in growable primitive arrays. Only the
+ * fields needed to build the tokens are copied from the pdfbox text
+ * positions, so the text positions (matrices, individual widths) do not have
+ * to be retained until the page is finished. Fonts are stored as ids of the
+ * font registry of the document, colors as packed ARGB ints.
+ *
+ * The buffer is reused from page to page, {@link #reset()} keeps the arrays.
+ */
+final class GlyphBuffer {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int size;
+
+    private float[] xs = new float[INITIAL_CAPACITY];
+    private float[] ys = new float[INITIAL_CAPACITY];
+    private float[] widths = new float[INITIAL_CAPACITY];
+    private float[] heights = new float[INITIAL_CAPACITY];
+    private float[] widthsOfSpace = new float[INITIAL_CAPACITY];
+    private float[] fontSizes = new float[INITIAL_CAPACITY];
+    private float[] fontSizesInPt = new float[INITIAL_CAPACITY];
+    private int[] fontIds = new int[INITIAL_CAPACITY];
+    private int[] strokingColors = new int[INITIAL_CAPACITY];
+    private int[] nonStrokingColors = new int[INITIAL_CAPACITY];
+    private int[] numberOfCharacters = new int[INITIAL_CAPACITY];
+    /**
+     * The unicode text of the glyph i is text[textOffsets[i], textOffsets[i + 1]).
+     */
+    private int[] textOffsets = new int[INITIAL_CAPACITY + 1];
+    private final StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+
+    private FontRegistry fontRegistry = new FontRegistry();
+
+    /**
+     * @param tp
+     * @param strokingColor ARGB
+     * @param nonStrokingColor ARGB
+     * @return Index of the added glyph.
+     */
+    int add(TextPosition tp, int strokingColor, int nonStrokingColor) {
+        if (size == xs.length) {
+            grow();
+        }
+        xs[size] = tp.getX();
+        ys[size] = tp.getY();
+        widths[size] = tp.getWidth();
+        heights[size] = tp.getHeight();
+        widthsOfSpace[size] = tp.getWidthOfSpace();
+        fontSizes[size] = tp.getFontSize();
+        fontSizesInPt[size] = tp.getFontSizeInPt();
+        fontIds[size] = fontRegistry.getId(tp.getFont());
+        strokingColors[size] = strokingColor;
+        nonStrokingColors[size] = nonStrokingColor;
+        numberOfCharacters[size] = tp.getIndividualWidths().length;
+        text.append(tp.getCharacter());
+        textOffsets[size + 1] = text.length();
+        return size++;
+    }
+
+    /**
+     * Removes the glyphs, the arrays are kept for the next page.
+     */
+    void reset() {
+        size = 0;
+        text.setLength(0);
+    }
+
+    void setFontRegistry(FontRegistry fontRegistry) {
+        this.fontRegistry = fontRegistry;
+    }
+
+    FontRegistry getFontRegistry() {
+        return fontRegistry;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The X of the glyphs, valid up to {@link #size()}.
+     */
+    float[] xs() {
+        return xs;
+    }
+
+    /**
+     * @return The Y of the glyphs, valid up to {@link #size()}.
+     */
+    float[] ys() {
+        return ys;
+    }
+
+    float getX(int glyph) {
+        return xs[glyph];
+    }
+
+    float getY(int glyph) {
+        return ys[glyph];
+    }
+
+    float getWidth(int glyph) {
+        return widths[glyph];
+    }
+
+    float getHeight(int glyph) {
+        return heights[glyph];
+    }
+
+    float getWidthOfSpace(int glyph) {
+        return widthsOfSpace[glyph];
+    }
+
+    float getFontSize(int glyph) {
+        return fontSizes[glyph];
+    }
+
+    float getFontSizeInPt(int glyph) {
+        return fontSizesInPt[glyph];
+    }
+
+    int getFontId(int glyph) {
+        return fontIds[glyph];
+    }
+
+    PDFont getFont(int glyph) {
+        return fontRegistry.getFont(fontIds[glyph]);
+    }
+
+    int getStrokingColor(int glyph) {
+        return strokingColors[glyph];
+    }
+
+    int getNonStrokingColor(int glyph) {
+        return nonStrokingColors[glyph];
+    }
+
+    int getNumberOfCharacters(int glyph) {
+        return numberOfCharacters[glyph];
+    }
+
+    /**
+     * Appends the unicode text of the glyph.
+     *
+     * @param glyph
+     * @param sb
+     */
+    void appendText(int glyph, StringBuilder sb) {
+        sb.append(text, textOffsets[glyph], textOffsets[glyph + 1]);
+    }
+
+    String getText(int glyph) {
+        return text.substring(textOffsets[glyph], textOffsets[glyph + 1]);
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        widthsOfSpace = Arrays.copyOf(widthsOfSpace, capacity);
+        fontSizes = Arrays.copyOf(fontSizes, capacity);
+        fontSizesInPt = Arrays.copyOf(fontSizesInPt, capacity);
+        fontIds = Arrays.copyOf(fontIds, capacity);
+        strokingColors = Arrays.copyOf(strokingColors, capacity);
+        nonStrokingColors = Arrays.copyOf(nonStrokingColors, capacity);
+        numberOfCharacters = Arrays.copyOf(numberOfCharacters, capacity);
+        textOffsets = Arrays.copyOf(textOffsets, capacity + 1);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor.text;
+
+import java.util.Arrays;
+
+/**
+ * Groups glyphs into lines and orders the lines by Y and the glyphs of a line
+ * by X. The positions are given as primitive arrays; the sort keys are packed
+ * into longs (sortable float bits in the high half, the glyph index in the low
+ * half), so ties keep the order in which the glyphs were added and nothing is
+ * boxed. The buffers are reused between pages.
+ *
+ * The glyphs are sorted once by Y; the consecutive glyphs within the Y
+ * tolerance of the first glyph of a line form the line, which is then sorted
+ * by X in place.
+ */
+final class LineBucketing {
+
+    /**
+     * Below this number of glyphs the sort is always sequential.
+     */
+    static final int MIN_PARALLEL_SORT_SIZE = 1 << 13;
+
+    private float yTolerance = 0f;
+    private int parallelSortThreshold = Integer.MAX_VALUE;
+
+    private long[] keys = new long[0];
+    private int[] order = new int[0];
+    private int[] lineStarts = new int[1];
+    private int lineCount;
+
+    float getYTolerance() {
+        return yTolerance;
+    }
+
+    /**
+     * @param yTolerance Maximum distance (page unit) from the Y of the first
+     * glyph of a line. With zero only the glyphs with exactly the same Y form a
+     * line.
+     */
+    void setYTolerance(float yTolerance) {
+        if (yTolerance < 0) {
+            throw new IllegalArgumentException("The Y tolerance must not be negative: " + yTolerance);
+        }
+        this.yTolerance = yTolerance;
+    }
+
+    int getParallelSortThreshold() {
+        return parallelSortThreshold;
+    }
+
+    /**
+     * @param parallelSortThreshold Number of glyphs from which the Y sort runs
+     * in parallel, Integer.MAX_VALUE disables it.
+     */
+    void setParallelSortThreshold(int parallelSortThreshold) {
+        this.parallelSortThreshold = Math.max(parallelSortThreshold, MIN_PARALLEL_SORT_SIZE);
+    }
+
+    void bucket(float[] ys, float[] xs, int size) {
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            keys[i] = key(ys[i], i);
+        }
+        if (size >= parallelSortThreshold) {
+            Arrays.parallelSort(keys, 0, size);
+        } else {
+            Arrays.sort(keys, 0, size);
+        }
+
+        lineCount = 0;
+        float lineY = 0f;
+        for (int i = 0; i < size; i++) {
+            int index = (int) keys[i];
+            if (i == 0 || !isSameLine(lineY, ys[index])) {
+                lineStarts[lineCount++] = i;
+                lineY = ys[index];
+            }
+            order[i] = index;
+        }
+        lineStarts[lineCount] = size;
+
+        for (int line = 0; line < lineCount; line++) {
+            sortByX(xs, lineStarts[line], lineStarts[line + 1]);
+        }
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    int getLineStart(int line) {
+        return lineStarts[line];
+    }
+
+    int getLineEnd(int line) {
+        return lineStarts[line + 1];
+    }
+
+    /**
+     * @param position Position in the ordered glyphs.
+     * @return Index of the glyph as it was added.
+     */
+    int getGlyphIndex(int position) {
+        return order[position];
+    }
+
+    private void sortByX(float[] xs, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            keys[i] = key(xs[order[i]], order[i]);
+        }
+        Arrays.sort(keys, from, to);
+        for (int i = from; i < to; i++) {
+            order[i] = (int) keys[i];
+        }
+    }
+
+    private boolean isSameLine(float lineY, float y) {
+        if (yTolerance == 0f) {
+            return Float.floatToIntBits(lineY) == Float.floatToIntBits(y);
+        }
+        return y - lineY <= yTolerance;
+    }
+
+    private void ensureCapacity(int size) {
+        if (keys.length < size) {
+            int capacity = Math.max(size, keys.length + (keys.length >> 1));
+            keys = new long[capacity];
+            order = new int[capacity];
+            lineStarts = new int[capacity + 1];
+        }
+    }
+
+    /**
+     * The signed int of the result orders the floats as Float.compare does.
+     */
+    static int sortableBits(float f) {
+        int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    private static long key(float f, int index) {
+        return ((long) sortableBits(f) << 32) | index;
+    }
+}
@@ -15,8 +15,9 @@
  */
 package chiliad.parser.pdf.extractor.text;
 
+import chiliad.parser.pdf.extractor.ContentStreamExtractor;
 import chiliad.parser.pdf.extractor.ExtractorException;
-import chiliad.parser.pdf.extractor.PageExtractor;
+import chiliad.parser.pdf.extractor.FontRegistry;
 import chiliad.parser.pdf.model.MPage;
 import chiliad.parser.pdf.model.MToken;
 import com.google.common.collect.ImmutableList;
@@ -25,22 +26,49 @@ import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.util.PDFStreamEngine;
-import org.apache.pdfbox.util.ResourceLoader;
 import org.apache.pdfbox.util.TextPosition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class TextExtractor extends PDFStreamEngine implements PageExtractor {
+public class TextExtractor extends ContentStreamExtractor {
 
     final static Logger LOG = LoggerFactory.getLogger(TextExtractor.class);
 
-    private TextPositionProcessor textPositionProcessor;
+    private final TextPositionProcessor textPositionProcessor = new TextPositionProcessor();
     private List<Token> tokens;
+    private int glyphs;
 
     public TextExtractor() throws IOException {
-        super(ResourceLoader.loadProperties(
-                "TextExtractor.properties", true));
+        super("TextExtractor.properties");
+        textPositionProcessor.setFontRegistry(getFontRegistry());
+    }
+
+    @Override
+    public void setFontRegistry(FontRegistry fontRegistry) {
+        super.setFontRegistry(fontRegistry);
+        textPositionProcessor.setFontRegistry(fontRegistry);
+    }
+
+    /**
+     * @param yTolerance Maximum Y distance (page unit) of the characters of a
+     * line. Zero (default) puts only the characters with the same Y into a
+     * line.
+     */
+    public void setLineTolerance(float yTolerance) {
+        textPositionProcessor.setLineTolerance(yTolerance);
+    }
+
+    @Override
+    public String getFingerprint() {
+        return getClass().getName() + "(lineTolerance=" + textPositionProcessor.getLineTolerance() + ")";
+    }
+
+    /**
+     * @param numberOfCharacters Number of characters on a page from which
+     * they are sorted in parallel (disabled by default).
+     */
+    public void setParallelSortThreshold(int numberOfCharacters) {
+        textPositionProcessor.setParallelSortThreshold(numberOfCharacters);
     }
 
     @Override
@@ -49,19 +77,33 @@ public class TextExtractor extends PDFStreamEngine implements PageExtractor {
             if (pageToExtract.getContents() == null) {
                 throw new IllegalStateException("Empty page content.");
             }
-            textPositionProcessor = new TextPositionProcessor();
-            processStream(pageToExtract, pageToExtract.findResources(), pageToExtract.getContents().getStream());
-            tokens = textPositionProcessor.process();
-            pageContent.addTokens(getMTokens());
-            return pageContent;
+            startPage(pageToExtract);
+            processPageStream(pageToExtract, pageToExtract.findResources(), pageToExtract.getContents().getStream());
+            return endPage(pageToExtract, pageContent);
         } catch (IOException ex) {
             throw new ExtractorException("Failed to extract the tokens.", ex);
         }
 
     }
 
+    @Override
+    protected void startPage(PDPage page) {
+        textPositionProcessor.clear();
+        glyphs = 0;
+    }
+
+    @Override
+    protected MPage endPage(PDPage page, MPage pageContent) {
+        tokens = textPositionProcessor.process();
+        pageContent.addTokens(getMTokens());
+        getMetrics().record("text.glyphs", glyphs);
+        getMetrics().record("text.tokens", tokens.size());
+        return pageContent;
+    }
+
     @Override
     protected void processTextPosition(TextPosition tp) {
+        glyphs++;
         try {
             if (tp.getWidth() == 0) {
                 //TODO KPT - handle rotated text
@@ -69,11 +111,9 @@ public class TextExtractor extends PDFStreamEngine implements PageExtractor {
                 LOG.info("Probably rotated text (width is zero) {}", tp);
                 return;
             }
-            TextPositionWrapper tpw = new TextPositionWrapper();
-            tpw.setTextPosition(tp);
-            tpw.setStrokingColor(getGraphicsState().getStrokingColor().getJavaColor());
-            tpw.setNonStrokingColor(getGraphicsState().getNonStrokingColor().getJavaColor());
-            textPositionProcessor.add(tpw);
+            textPositionProcessor.add(tp,
+                    getColorCache().toArgb(getGraphicsState().getStrokingColor()),
+                    getColorCache().toArgb(getGraphicsState().getNonStrokingColor()));
         } catch (IOException ex) {
             throw new ExtractorException("Failed while processing text position.", ex);
         }
@@ -83,6 +123,7 @@ public class TextExtractor extends PDFStreamEngine implements PageExtractor {
     @Override
     public void reset() {
         tokens.clear();
+        textPositionProcessor.clear();
         super.resetEngine();
     }
 
@@ -97,8 +138,8 @@ public class TextExtractor extends PDFStreamEngine implements PageExtractor {
         mToken.setFontName(token.getFontName());
         mToken.setFontSizeInPt(token.getFontSizeInPt());
         mToken.setFontWeight(token.getFontWeight());
-        mToken.setNonStrokingColor(MToken.colorToRgba(token.getNonStrokingColor()));
-        mToken.setStrokingColor(MToken.colorToRgba(token.getStrokingColor()));
+        mToken.setNonStrokingArgb(token.getNonStrokingColor());
+        mToken.setStrokingArgb(token.getStrokingColor());
         mToken.setX(token.getPositionStartX());
         mToken.setY(token.getPositionStartY());
         mToken.setWidth(token.getWidth());
@@ -15,86 +15,102 @@
  */
 package chiliad.parser.pdf.extractor.text;
 
+import chiliad.parser.pdf.extractor.FontRegistry;
 import com.google.common.base.MoreObjects;
-import com.google.common.collect.ComparisonChain;
-import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
 import org.apache.pdfbox.util.TextPosition;
 
 public class TextPositionProcessor {
 
     private boolean printStat = false;
 
-    private LinkedList<TextPositionWrapper> textPositionWrappers = new LinkedList<>();
+    private final GlyphBuffer glyphs = new GlyphBuffer();
 
-    void add(TextPositionWrapper tpw) {
-        textPositionWrappers.add(tpw);
+    private final LineBucketing lineBucketing = new LineBucketing();
+
+    void add(TextPosition tp, int strokingColor, int nonStrokingColor) {
+        glyphs.add(tp, strokingColor, nonStrokingColor);
+    }
+
+    void setFontRegistry(FontRegistry fontRegistry) {
+        glyphs.setFontRegistry(fontRegistry);
+    }
+
+    /**
+     * Removes the glyphs of the previous page, the buffers are kept.
+     */
+    void clear() {
+        glyphs.reset();
     }
 
-    Map<Float, List<TextPositionWrapper>> groupByPositionY() {
-        return new TreeMap<>(textPositionWrappers.stream().sorted(textPositionComparator).collect(Collectors.groupingBy(TextPositionWrapper::getTextPositionY)));
+    /**
+     * @param yTolerance Maximum Y distance (page unit) of the text positions
+     * of a line, so a jittering baseline does not split the line.
+     */
+    public void setLineTolerance(float yTolerance) {
+        lineBucketing.setYTolerance(yTolerance);
+    }
+
+    public float getLineTolerance() {
+        return lineBucketing.getYTolerance();
+    }
+
+    /**
+     * @param numberOfTextPositions Number of text positions on a page from
+     * which they are sorted in parallel.
+     */
+    public void setParallelSortThreshold(int numberOfTextPositions) {
+        lineBucketing.setParallelSortThreshold(numberOfTextPositions);
+    }
+
+    void groupByPositionY() {
+        lineBucketing.bucket(glyphs.ys(), glyphs.xs(), glyphs.size());
     }
 
     LinkedList<Token> buildTokens() {
         LinkedList<Token> tokens = new LinkedList<>();
-
-        groupByPositionY().values().stream().map((wrappers) -> {
-            Token t = new Token(wrappers.get(0));
-            for (int i = 1; i < wrappers.size(); i++) {
-                final TextPositionWrapper currentPosition = wrappers.get(i);
-                if (!t.accept(currentPosition)) {
+        for (int line = 0; line < lineBucketing.getLineCount(); line++) {
+            int start = lineBucketing.getLineStart(line);
+            Token t = new Token(glyphs, lineBucketing.getGlyphIndex(start));
+            for (int i = start + 1; i < lineBucketing.getLineEnd(line); i++) {
+                final int currentGlyph = lineBucketing.getGlyphIndex(i);
+                if (!t.accept(currentGlyph)) {
                     tokens.add(t);
-                    t = new Token(currentPosition);
+                    t = new Token(glyphs, currentGlyph);
                 }
             }
-            return t;
-        }).forEach(t -> tokens.add(t));
+            tokens.add(t);
+        }
         return tokens;
     }
 
-    private String test(List<TextPositionWrapper> tpws) {
-        return tpws.stream().sequential().map(tpw -> tpw.textPosition.getCharacter()).collect(Collectors.joining());
-    }
-
-    private final Comparator<TextPositionWrapper> textPositionComparator = (TextPositionWrapper left, TextPositionWrapper right) -> {
-        return ComparisonChain.start().compare(left.textPosition.getY(), right.textPosition.getY()).compare(left.textPosition.getX(), right.textPosition.getX()).result();
-    };
-
     public List<Token> process() {
+        groupByPositionY();
         List<Token> tokens = buildTokens();
 
         if (printStat) {
-            groupByPositionY().values().stream().sequential()
-                    .peek(e -> System.out.println(e.size() + " : " + test(e))).count();
-
-            for (List<TextPositionWrapper> wrappers : groupByPositionY().values()) {
-                StringBuilder sb = new StringBuilder();
-                for (int i = 1; i <= wrappers.size() - 1; i++) {
-                    int j = i - 1;
-                    Float dist = wrappers.get(i).getWidthOfSpaceBetweenTextPosition(wrappers.get(j));
-                    float widthOfSpace = wrappers.get(i).textPosition.getWidthOfSpace();
-                    sb.append(wrappers.get(j).textPosition.getCharacter()).append("(" + widthOfSpace + ")").append(" [").append(dist).append("] ");
-                }
-                sb.append(wrappers.get(wrappers.size() - 1).textPosition.getCharacter());
-            }
+            printLines();
         }
         return tokens;
     }
 
-    private void print(Map<Float, List<TextPositionWrapper>> group) {
-        for (Map.Entry<Float, List<TextPositionWrapper>> entry : group.entrySet()) {
-            System.out.println("Y=" + entry.getKey());
-            for (TextPositionWrapper tpw : entry.getValue()) {
-                System.out.println(textPositionAsString(tpw.textPosition));
+    private void printLines() {
+        for (int line = 0; line < lineBucketing.getLineCount(); line++) {
+            int start = lineBucketing.getLineStart(line);
+            int end = lineBucketing.getLineEnd(line);
+            StringBuilder sb = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                glyphs.appendText(lineBucketing.getGlyphIndex(i), sb);
+            }
+            System.out.println((end - start) + " : " + sb);
+            for (int i = start; i < end; i++) {
+                System.out.println(glyphAsString(lineBucketing.getGlyphIndex(i)));
             }
         }
     }
 
-    private String textPositionAsString(TextPosition tp) {
-        return MoreObjects.toStringHelper(tp).add("char", tp.getCharacter()).add("x", tp.getX()).add("y", tp.getY()).add("widthOfSpace", tp.getWidthOfSpace()).toString();
+    private String glyphAsString(int glyph) {
+        return MoreObjects.toStringHelper(TextPosition.class).add("char", glyphs.getText(glyph)).add("x", glyphs.getX(glyph)).add("y", glyphs.getY(glyph)).add("widthOfSpace", glyphs.getWidthOfSpace(glyph)).toString();
     }
 }
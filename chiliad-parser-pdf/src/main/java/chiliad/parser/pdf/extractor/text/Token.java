@@ -15,58 +15,69 @@
  */
 package chiliad.parser.pdf.extractor.text;
 
-import java.awt.Color;
-import java.util.LinkedList;
-import java.util.stream.Collectors;
-import org.apache.pdfbox.util.TextPosition;
+import java.util.DoubleSummaryStatistics;
 
+/**
+ * Token built from consecutive glyphs of a {@link GlyphBuffer}. The text and
+ * the aggregates (width, height, number of characters) are maintained while
+ * the glyphs are added, so accepting a glyph costs the same regardless of the
+ * length of the token.
+ */
 class Token {
 
     private final double gapTolerance = 1.4;
 
-    private final LinkedList<TextPositionWrapper> textPositionWrappers = new LinkedList<>();
-    String text = "";
+    private final GlyphBuffer glyphs;
+    private final int first;
+    private int last;
+    private final StringBuilder text = new StringBuilder();
+    /**
+     * Widths of the glyphs, the sum is compensated the same way as the sum of
+     * a stream.
+     */
+    private final DoubleSummaryStatistics widths = new DoubleSummaryStatistics();
+    private double maxHeight = Double.NEGATIVE_INFINITY;
+    private int numberOfCharacters;
 
-    Token(TextPositionWrapper wrapper) {
-        textPositionWrappers.add(wrapper);
-        text = wrapper.textPosition.getCharacter();
+    Token(GlyphBuffer glyphs, int glyph) {
+        this.glyphs = glyphs;
+        this.first = glyph;
+        add(glyph);
     }
 
-    private void add(TextPositionWrapper tpw) {
-        textPositionWrappers.add(tpw);
-        text = buildText();
+    private void add(int glyph) {
+        last = glyph;
+        glyphs.appendText(glyph, text);
+        widths.accept(glyphs.getWidth(glyph));
+        maxHeight = Math.max(maxHeight, glyphs.getHeight(glyph));
+        numberOfCharacters += glyphs.getNumberOfCharacters(glyph);
     }
 
     String buildText() {
-        return textPositionWrappers.stream().map(tpw -> tpw.textPosition.getCharacter()).collect(Collectors.joining());
+        return text.toString();
     }
 
     int numberOfCharacters() {
-        return textPositionWrappers.stream().collect(Collectors.summingInt(tpw -> tpw.textPosition.getIndividualWidths().length));
+        return numberOfCharacters;
     }
 
     double averageTextPositionWidth() {
-        return textPositionWrappers.stream().mapToDouble(tpw -> tpw.textPosition.getWidth())
-                .average()
-                .getAsDouble();
+        return widths.getAverage();
     }
 
     double maxTextPositionWidth() {
-        return textPositionWrappers.stream().mapToDouble(tpw -> tpw.textPosition.getWidth())
-                .max()
-                .getAsDouble();
+        return widths.getMax();
     }
 
-    double distanceFromTokenLastElement(TextPositionWrapper tpw) {
-        TextPositionWrapper last = textPositionWrappers.getLast();
-        return Math.abs(last.getTextPositionX() + last.textPosition.getWidth() - tpw.getTextPositionX());
+    double distanceFromTokenLastElement(int glyph) {
+        return Math.abs(glyphs.getX(last) + glyphs.getWidth(last) - glyphs.getX(glyph));
     }
 
-    boolean accept(TextPositionWrapper tpw) {
-        TextPositionWrapper last = textPositionWrappers.getLast();
-        if (distanceFromTokenLastElement(tpw) < maxTextPositionWidth() * gapTolerance
-                && last.hasTheSameFontType(tpw) && last.hasTheSameFontSize(tpw)) {
-            add(tpw);
+    boolean accept(int glyph) {
+        if (distanceFromTokenLastElement(glyph) < maxTextPositionWidth() * gapTolerance
+                && glyphs.getFontId(last) == glyphs.getFontId(glyph)
+                && glyphs.getFontSize(last) == glyphs.getFontSize(glyph)) {
+            add(glyph);
             return true;
         }
         return false;
@@ -78,66 +89,55 @@ class Token {
     }
 
     public String getFontFamily() {
-        if (textPositionWrappers.getFirst().textPosition.getFont().getFontDescriptor() == null) {
-            return "";
-        }
-        return textPositionWrappers.getFirst().textPosition.getFont().getFontDescriptor().getFontFamily();
+        return glyphs.getFontRegistry().getFontFamily(glyphs.getFontId(first));
     }
 
     public String getFontName() {
-        if (textPositionWrappers.getFirst().textPosition.getFont().getFontDescriptor() == null) {
-            return "";
-        }
-        return textPositionWrappers.getFirst().textPosition.getFont().getFontDescriptor().getFontName();
+        return glyphs.getFontRegistry().getFontName(glyphs.getFontId(first));
     }
 
     public Double getFontSizeInPt() {
-        return (double) textPositionWrappers.getFirst().textPosition.getFontSizeInPt();
+        return (double) glyphs.getFontSizeInPt(first);
     }
 
     public Double getFontWeight() {
-        if (textPositionWrappers.getFirst().textPosition.getFont().getFontDescriptor() == null) {
-            return 300D;
-        }
-        return (double) textPositionWrappers.getFirst().textPosition.getFont().getFontDescriptor().getFontWeight();
+        return (double) glyphs.getFontRegistry().getFontWeight(glyphs.getFontId(first));
     }
 
     //TODO kpt might be nicer distinguish for every char
-    public Color getStrokingColor() {
-        return textPositionWrappers.getFirst().getStrokingColor();
+    public int getStrokingColor() {
+        return glyphs.getStrokingColor(first);
     }
 
-    public Color getNonStrokingColor() {
-        return textPositionWrappers.getFirst().getNonStrokingColor();
+    public int getNonStrokingColor() {
+        return glyphs.getNonStrokingColor(first);
     }
 
     public Double getPositionStartX() {
-        return (double) textPositionWrappers.getFirst().getTextPositionX();
+        return (double) glyphs.getX(first);
     }
 
     public Double getPositionStartY() {
-        return (double) textPositionWrappers.getFirst().getTextPositionY();
+        return (double) glyphs.getY(first);
     }
 
     public Double getPositionEndX() {
-        TextPosition tp = textPositionWrappers.getFirst().textPosition;
-        return (double) (tp.getX() + tp.getWidth());
+        return (double) (glyphs.getX(first) + glyphs.getWidth(first));
     }
 
     public Double getPositionEndY() {
-        TextPosition tp = textPositionWrappers.getFirst().textPosition;
-        return (double) (tp.getY() + tp.getHeight());
+        return (double) (glyphs.getY(first) + glyphs.getHeight(first));
     }
 
     public Double getWidth() {
-        return textPositionWrappers.stream().mapToDouble(tpw -> tpw.textPosition.getWidth()).sum();
+        return widths.getSum();
     }
 
     public Double getHeight() {
-        return textPositionWrappers.stream().mapToDouble(tpw -> tpw.textPosition.getHeight()).max().getAsDouble();
+        return maxHeight;
     }
 
     public String getText() {
-        return text;
+        return text.toString();
     }
 }
@@ -37,13 +37,22 @@ public final class SVGBasedExtractor extends VectorGraphicsExtractor {
     private final String qualifiedName = "svg";
 
     public SVGBasedExtractor() throws IOException {
+        setGraphics(newGraphics());
+    }
+
+    /**
+     * The definitions (e.g. clip paths) of the generator are kept until the
+     * generator is dropped, a page gets its own generator so its SVG does not
+     * depend on the pages extracted before.
+     */
+    private SVGGraphics2D newGraphics() {
         DOMImplementation domImpl
                 = SVGDOMImplementation.getDOMImplementation();
         String svgNS = SVGDOMImplementation.SVG_NAMESPACE_URI;
         SVGDocument doc = (SVGDocument) domImpl.createDocument(svgNS, qualifiedName, null);
         SVGGeneratorContext ctx
                 = SVGGeneratorContext.createDefault(doc);
-        setGraphics(new SVGGraphics2D(ctx, useCSS));
+        return new SVGGraphics2D(ctx, useCSS);
     }
 
     @Override
@@ -52,6 +61,7 @@ public final class SVGBasedExtractor extends VectorGraphicsExtractor {
         StringWriter writer = new StringWriter();
         graphics.stream(writer);
         String svg = writer.getBuffer().toString();
+        getMetrics().record("vectorgraphics.svgChars", svg.length());
         MVectorGraphics vectorGraphics = new MVectorGraphics();
         vectorGraphics.setSvgContent(svg);
         pageContent.setVectorGraphics(vectorGraphics);
@@ -61,6 +71,7 @@ public final class SVGBasedExtractor extends VectorGraphicsExtractor {
     @Override
     public void reset() {
         super.reset();
+        setGraphics(newGraphics());
     }
 
 //            PageContent.VectorGraphics vg = new PageContent.VectorGraphics();
@@ -39,8 +39,9 @@
  */
 package chiliad.parser.pdf.extractor.vectorgraphics;
 
+import chiliad.parser.pdf.extractor.ContentStreamExtractor;
 import chiliad.parser.pdf.extractor.ExtractorException;
-import chiliad.parser.pdf.extractor.PageExtractor;
+import chiliad.parser.pdf.extractor.PageTruncatedException;
 import chiliad.parser.pdf.model.MPage;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -52,6 +53,7 @@ import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.util.List;
@@ -77,12 +79,10 @@ import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
 import org.apache.pdfbox.util.Matrix;
-import org.apache.pdfbox.util.PDFStreamEngine;
-import org.apache.pdfbox.util.ResourceLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public abstract class VectorGraphicsExtractor extends PDFStreamEngine implements PageExtractor {
+public abstract class VectorGraphicsExtractor extends ContentStreamExtractor {
 
     final static Logger LOG = LoggerFactory.getLogger(VectorGraphicsExtractor.class);
 
@@ -106,13 +106,18 @@ public abstract class VectorGraphicsExtractor extends PDFStreamEngine implements
 
     private BasicStroke stroke = null;
 
+    /**
+     * Number of the painted path segments of the page, counted only for the
+     * metrics.
+     */
+    private long pathSegments;
+
     protected VectorGraphicsExtractor() throws IOException {
         this(null);
     }
 
     public VectorGraphicsExtractor(Graphics2D graphics) throws IOException {
-        super(ResourceLoader.loadProperties(
-                "VectorGraphicsExtractor.properties", true));
+        super("VectorGraphicsExtractor.properties");
         this.graphics = graphics;
     }
 
@@ -122,51 +127,68 @@ public abstract class VectorGraphicsExtractor extends PDFStreamEngine implements
             if (pageToExtract.getContents() == null) {
                 throw new ExtractorException("Contents is null.");
             }
-
-            pageSize = pageToExtract.findMediaBox().createDimension();
-            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-            // initialize the used stroke with CAP_BUTT instead of CAP_SQUARE
-            graphics.setStroke(new BasicStroke(1.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER));
             // Only if there is some content, we have to process it.
             // Otherwise we are done here and we will produce an empty page
-
+            startPage(pageToExtract);
             PDResources resources = pageToExtract.findResources();
-            processStream(pageToExtract, resources, pageToExtract.getContents().getStream());
-
-            List<PDAnnotation> annotations = pageToExtract.getAnnotations();
-            for (PDAnnotation annotation : annotations) {
-                PDAnnotation annot = (PDAnnotation) annotation;
-                PDRectangle rect = annot.getRectangle();
-                String appearanceName = annot.getAppearanceStream();
-                PDAppearanceDictionary appearDictionary = annot.getAppearance();
-                if (appearDictionary != null) {
-                    if (appearanceName == null) {
-                        appearanceName = "default";
-                    }
-                    Map<String, PDAppearanceStream> appearanceMap = appearDictionary.getNormalAppearance();
-                    if (appearanceMap != null) {
-                        PDAppearanceStream appearance
-                                = (PDAppearanceStream) appearanceMap.get(appearanceName);
-                        if (appearance != null) {
-                            Point2D point = new Point2D.Float(rect.getLowerLeftX(), rect.getLowerLeftY());
-                            Matrix matrix = appearance.getMatrix();
-                            if (matrix != null) {
-                                // transform the rectangle using the given matrix
-                                AffineTransform at = matrix.createAffineTransform();
-                                at.transform(point, point);
-                            }
-                            graphics.translate((int) point.getX(), -(int) point.getY());
+            processPageStream(pageToExtract, resources, pageToExtract.getContents().getStream());
+            return endPage(pageToExtract, pageContent);
+        } catch (IOException ex) {
+            throw new ExtractorException("Failed to extract vector graphics.", ex);
+        }
+    }
+
+    @Override
+    protected void startPage(PDPage pageToExtract) {
+        pageSize = pageToExtract.findMediaBox().createDimension();
+        pathSegments = 0;
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        // initialize the used stroke with CAP_BUTT instead of CAP_SQUARE
+        graphics.setStroke(new BasicStroke(1.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER));
+    }
+
+    @Override
+    protected MPage endPage(PDPage pageToExtract, MPage pageContent) throws IOException {
+        List<PDAnnotation> annotations = pageToExtract.getAnnotations();
+        for (PDAnnotation annotation : annotations) {
+            if (isPageStopped()) {
+                break;
+            }
+            PDAnnotation annot = (PDAnnotation) annotation;
+            PDRectangle rect = annot.getRectangle();
+            String appearanceName = annot.getAppearanceStream();
+            PDAppearanceDictionary appearDictionary = annot.getAppearance();
+            if (appearDictionary != null) {
+                if (appearanceName == null) {
+                    appearanceName = "default";
+                }
+                Map<String, PDAppearanceStream> appearanceMap = appearDictionary.getNormalAppearance();
+                if (appearanceMap != null) {
+                    PDAppearanceStream appearance
+                            = (PDAppearanceStream) appearanceMap.get(appearanceName);
+                    if (appearance != null) {
+                        Point2D point = new Point2D.Float(rect.getLowerLeftX(), rect.getLowerLeftY());
+                        Matrix matrix = appearance.getMatrix();
+                        if (matrix != null) {
+                            // transform the rectangle using the given matrix
+                            AffineTransform at = matrix.createAffineTransform();
+                            at.transform(point, point);
+                        }
+                        graphics.translate((int) point.getX(), -(int) point.getY());
+                        try {
                             processSubStream(pageToExtract, appearance.getResources(), appearance.getStream());
+                        } catch (PageTruncatedException ex) {
+                            LOG.debug("Page truncated in an annotation: {}", ex.getTruncation().getName());
+                        } finally {
                             graphics.translate(-(int) point.getX(), (int) point.getY());
                         }
                     }
                 }
             }
-            return handleResult(graphics, pageContent);
-        } catch (IOException ex) {
-            throw new ExtractorException("Failed to extract vector graphics.", ex);
         }
+        getMetrics().record("vectorgraphics.pathSegments", pathSegments);
+        return handleResult(graphics, pageContent);
     }
 
     public abstract MPage handleResult(Graphics2D g, MPage pageContent) throws IOException;
@@ -263,6 +285,7 @@ public abstract class VectorGraphicsExtractor extends PDFStreamEngine implements
         graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
         graphics.setClip(getGraphicsState().getCurrentClippingPath());
         graphics.fill(getLinePath());
+        countPathSegments(getLinePath());
         getLinePath().reset();
     }
 
@@ -342,6 +365,7 @@ public abstract class VectorGraphicsExtractor extends PDFStreamEngine implements
         graphics.setClip(getGraphicsState().getCurrentClippingPath());
         GeneralPath path = getLinePath();
         graphics.draw(path);
+        countPathSegments(path);
         path.reset();
     }
 
@@ -414,10 +438,19 @@ public abstract class VectorGraphicsExtractor extends PDFStreamEngine implements
                 graphicsState.setCurrentClippingPath(clippingPath);
             }
             clippingWindingRule = -1;
+            countPathSegments(getLinePath());
         }
         getLinePath().reset();
     }
 
+    private void countPathSegments(GeneralPath path) {
+        if (getMetrics().isEnabled()) {
+            for (PathIterator segments = path.getPathIterator(null); !segments.isDone(); segments.next()) {
+                pathSegments++;
+            }
+        }
+    }
+
     /**
      * Draw the AWT image. Called by Invoke. Moved into PageDrawer so that
      * Invoke doesn't have to reach in here for Graphics as that breaks
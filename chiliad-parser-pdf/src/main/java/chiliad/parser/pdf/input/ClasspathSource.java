@@ -15,21 +15,67 @@
  */
 package chiliad.parser.pdf.input;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
-public class ClasspathSource implements PDFSource {
+public class ClasspathSource implements PDFSource, Closeable {
 
     private final String path;
+    private final DocumentLoader loader;
+    private StreamSource spooled;
 
     public ClasspathSource(String path) {
+        this(path, DocumentLoader.IN_MEMORY);
+    }
+
+    /**
+     * Without in memory loading the resource is spooled into a temporary file
+     * once, the file is deleted by {@link #close()}.
+     *
+     * @param path
+     * @param loader
+     */
+    public ClasspathSource(String path, DocumentLoader loader) {
         this.path = path;
+        this.loader = loader;
     }
 
     @Override
     public PDDocument loadDocument() throws IOException {
-        return PDDocument.load(this.getClass().getClassLoader().getResourceAsStream(path));
+        if (loader.isInMemory()) {
+            return PDDocument.load(openResource());
+        }
+        synchronized (this) {
+            if (spooled == null) {
+                spooled = new StreamSource(getId(), openResource(), loader);
+            }
+        }
+        return spooled.loadDocument();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (spooled != null) {
+            spooled.close();
+            spooled = null;
+        }
+    }
+
+    @Override
+    public InputStream openContent() throws IOException {
+        return openResource();
+    }
+
+    private InputStream openResource() throws FileNotFoundException {
+        InputStream resource = this.getClass().getClassLoader().getResourceAsStream(path);
+        if (resource == null) {
+            throw new FileNotFoundException("Classpath resource '" + path + "' not found.");
+        }
+        return resource;
     }
 
     @Override
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.input;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * Loads documents within a memory budget.
+ *
+ * A file not larger than the budget is loaded by the sequential parser of
+ * pdfbox, the whole object graph and the stream data are kept in the heap. A
+ * larger file is loaded by the non-sequential parser, which reads the file by
+ * random access, and the stream data (e.g. the images of scanned pages) is
+ * kept in a scratch file instead of the heap, so files larger than the heap
+ * can be parsed. The scratch file is deleted when the document is closed.
+ */
+public final class DocumentLoader {
+
+    /**
+     * Everything is loaded into the heap.
+     */
+    public static final DocumentLoader IN_MEMORY = new DocumentLoader(Long.MAX_VALUE, null);
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private final long memoryBudget;
+    private final File scratchDirectory;
+
+    /**
+     * @param memoryBudget Size in bytes up to which a file is loaded into the
+     * heap, zero loads every file with a scratch file.
+     * @param scratchDirectory Directory of the scratch files, the default
+     * temporary directory if null.
+     */
+    public DocumentLoader(long memoryBudget, File scratchDirectory) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("The memory budget must not be negative: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        this.scratchDirectory = scratchDirectory;
+    }
+
+    /**
+     * @param megabytes
+     * @param scratchDirectory
+     * @return Loader with a budget given in megabytes.
+     */
+    public static DocumentLoader withMemoryBudgetInMB(long megabytes, File scratchDirectory) {
+        return new DocumentLoader(megabytes >= Long.MAX_VALUE / MEGABYTE ? Long.MAX_VALUE : megabytes * MEGABYTE, scratchDirectory);
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public File getScratchDirectory() {
+        return scratchDirectory;
+    }
+
+    /**
+     * @return True if every document is loaded into the heap.
+     */
+    public boolean isInMemory() {
+        return memoryBudget == Long.MAX_VALUE;
+    }
+
+    public PDDocument load(File pdfFile) throws IOException {
+        if (pdfFile.length() <= memoryBudget) {
+            return PDDocument.load(pdfFile);
+        }
+        ScratchFile scratchFile = ScratchFile.create(scratchDirectory);
+        try {
+            return PDDocument.loadNonSeq(pdfFile, scratchFile);
+        } catch (IOException | RuntimeException ex) {
+            scratchFile.close();
+            throw ex;
+        }
+    }
+}
@@ -16,20 +16,33 @@
 package chiliad.parser.pdf.input;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 public class FileSource implements PDFSource {
 
     private final File pdfFile;
+    private final DocumentLoader loader;
 
     public FileSource(File pdfFile) {
+        this(pdfFile, DocumentLoader.IN_MEMORY);
+    }
+
+    public FileSource(File pdfFile, DocumentLoader loader) {
         this.pdfFile = pdfFile;
+        this.loader = loader;
     }
 
     @Override
     public PDDocument loadDocument() throws IOException {
-        return PDDocument.load(pdfFile);
+        return loader.load(pdfFile);
+    }
+
+    @Override
+    public InputStream openContent() throws IOException {
+        return new FileInputStream(pdfFile);
     }
 
     @Override
@@ -16,6 +16,7 @@
 package chiliad.parser.pdf.input;
 
 import java.io.IOException;
+import java.io.InputStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 public interface PDFSource {
@@ -23,4 +24,15 @@ public interface PDFSource {
     String getId();
 
     PDDocument loadDocument() throws IOException;
+
+    /**
+     * Opens the bytes of the document, e.g. to identify it by its content.
+     *
+     * @return Stream of the document bytes, null if the source can not
+     * provide them.
+     * @throws IOException
+     */
+    default InputStream openContent() throws IOException {
+        return null;
+    }
 }
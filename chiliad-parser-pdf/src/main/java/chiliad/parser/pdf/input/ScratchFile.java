@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.input;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.pdfbox.io.RandomAccessFile;
+
+/**
+ * Temporary file holding the stream data of a document, deleted when the
+ * document (and so the scratch file) is closed. It extends the pdfbox random
+ * access file, since pdfbox shares file based scratch storage between the
+ * streams but copies any other kind.
+ */
+final class ScratchFile extends RandomAccessFile {
+
+    private static final String PREFIX = "chiliad-scratch";
+
+    private final File file;
+
+    private ScratchFile(File file) throws IOException {
+        super(file, "rw");
+        this.file = file;
+    }
+
+    /**
+     * @param directory Directory of the file, the default temporary directory
+     * if null.
+     * @return The new scratch file.
+     * @throws IOException
+     */
+    static ScratchFile create(File directory) throws IOException {
+        File file = File.createTempFile(PREFIX, ".tmp", directory);
+        try {
+            return new ScratchFile(file);
+        } catch (IOException | RuntimeException ex) {
+            file.delete();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            file.delete();
+        }
+    }
+}
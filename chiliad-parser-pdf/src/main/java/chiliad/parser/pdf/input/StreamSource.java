@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * Document given as an input stream or a byte array.
+ *
+ * The source can be loaded several times (e.g. by the parallel page workers),
+ * so the input stream is read only once. With an in memory loader the content
+ * is kept as a byte array, otherwise it is spooled into a temporary file
+ * which is loaded within the memory budget of the loader. The temporary file
+ * is deleted by {@link #close()}, after the documents of the source are
+ * closed.
+ */
+public class StreamSource implements PDFSource, Closeable {
+
+    private static final String SPOOL_FILE_PREFIX = "chiliad-source";
+
+    private final String id;
+    private final DocumentLoader loader;
+    private InputStream input;
+    private byte[] bytes;
+    private File spoolFile;
+
+    public StreamSource(String id, InputStream input) {
+        this(id, input, DocumentLoader.IN_MEMORY);
+    }
+
+    public StreamSource(String id, InputStream input, DocumentLoader loader) {
+        this.id = id;
+        this.input = input;
+        this.loader = loader;
+    }
+
+    public StreamSource(String id, byte[] bytes) {
+        this(id, bytes, DocumentLoader.IN_MEMORY);
+    }
+
+    public StreamSource(String id, byte[] bytes, DocumentLoader loader) {
+        this.id = id;
+        this.bytes = bytes;
+        this.loader = loader;
+    }
+
+    @Override
+    public synchronized PDDocument loadDocument() throws IOException {
+        if (loader.isInMemory()) {
+            if (bytes == null) {
+                bytes = IOUtils.toByteArray(input);
+                closeInput();
+            }
+            return PDDocument.load(new ByteArrayInputStream(bytes));
+        }
+        if (spoolFile == null) {
+            spool();
+        }
+        return loader.load(spoolFile);
+    }
+
+    /**
+     * Reads the input stream when it was not read yet.
+     */
+    @Override
+    public synchronized InputStream openContent() throws IOException {
+        if (spoolFile != null) {
+            return new FileInputStream(spoolFile);
+        }
+        if (bytes == null) {
+            if (!loader.isInMemory()) {
+                spool();
+                return new FileInputStream(spoolFile);
+            }
+            bytes = IOUtils.toByteArray(input);
+            closeInput();
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeInput();
+        if (spoolFile != null) {
+            spoolFile.delete();
+            spoolFile = null;
+        }
+    }
+
+    private void spool() throws IOException {
+        File file = File.createTempFile(SPOOL_FILE_PREFIX, ".pdf", loader.getScratchDirectory());
+        try (OutputStream out = new FileOutputStream(file)) {
+            if (bytes != null) {
+                out.write(bytes);
+            } else {
+                IOUtils.copyLarge(input, out);
+            }
+        } catch (IOException | RuntimeException ex) {
+            file.delete();
+            throw ex;
+        }
+        spoolFile = file;
+        // the content is read from the file from now on
+        bytes = null;
+        closeInput();
+    }
+
+    private void closeInput() throws IOException {
+        if (input != null) {
+            input.close();
+            input = null;
+        }
+    }
+}
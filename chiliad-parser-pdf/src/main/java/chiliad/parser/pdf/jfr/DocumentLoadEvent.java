@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Loading of a document by the parser or a page worker.
+ */
+@Name("chiliad.DocumentLoad")
+@Label("Document Load")
+@Category({"Chiliad", "PDF Parser"})
+@Description("Loading of the PDF document.")
+public final class DocumentLoadEvent extends Event {
+
+    @Label("Source")
+    String source;
+
+    /**
+     * Commits the event if it is enabled and lasted longer than the
+     * threshold.
+     *
+     * @param source
+     */
+    public void commit(String source) {
+        if (shouldCommit()) {
+            this.source = source;
+            commit();
+        }
+    }
+}
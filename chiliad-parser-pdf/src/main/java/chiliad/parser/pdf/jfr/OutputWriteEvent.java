@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Writing of an extracted page into the output, only the enqueueing with an
+ * asynchronous output.
+ */
+@Name("chiliad.OutputWrite")
+@Label("Output Write")
+@Category({"Chiliad", "PDF Parser"})
+@Description("Writing of an extracted page into the output.")
+@StackTrace(false)
+public final class OutputWriteEvent extends Event {
+
+    @Label("Page Number")
+    int pageNumber;
+
+    @Label("Output")
+    String output;
+
+    /**
+     * Commits the event if it is enabled and lasted longer than the
+     * threshold.
+     *
+     * @param pageNumber
+     * @param output
+     */
+    public void commit(int pageNumber, String output) {
+        if (shouldCommit()) {
+            this.pageNumber = pageNumber;
+            this.output = output;
+            commit();
+        }
+    }
+}
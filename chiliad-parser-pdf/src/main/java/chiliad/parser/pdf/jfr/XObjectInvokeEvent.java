@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Interpretation of a form (or another sub stream) invoked while the content
+ * stream of a page is interpreted. The page is the one of the enclosing
+ * {@link PageExtractEvent} of the same thread.
+ */
+@Name("chiliad.XObjectInvoke")
+@Label("XObject Invoke")
+@Category({"Chiliad", "PDF Parser"})
+@Description("Interpretation of a form invoked by a content stream.")
+@StackTrace(false)
+public final class XObjectInvokeEvent extends Event {
+
+    @Label("Extractor")
+    String extractor;
+
+    @Label("Depth")
+    @Description("Nesting depth, 1 for a form invoked by the page content stream.")
+    int depth;
+
+    @Label("Stream Length")
+    @DataAmount
+    long streamLength;
+
+    /**
+     * Commits the event if it is enabled and lasted longer than the
+     * threshold.
+     *
+     * @param extractor
+     * @param depth
+     * @param streamLength
+     */
+    public void commit(String extractor, int depth, long streamLength) {
+        if (shouldCommit()) {
+            this.extractor = extractor;
+            this.depth = depth;
+            this.streamLength = streamLength;
+            commit();
+        }
+    }
+}
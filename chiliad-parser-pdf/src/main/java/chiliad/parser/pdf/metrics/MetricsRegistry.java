@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.metrics;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the measurements in memory. The counters and histograms are created
+ * at their first use; afterwards a measurement is a lock free map lookup and
+ * an atomic update, the threads only contend on the same bucket of a
+ * histogram.
+ */
+public final class MetricsRegistry implements ParserMetrics {
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> values = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void count(String name, long delta) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, n -> new LongAdder());
+        }
+        counter.add(delta);
+    }
+
+    @Override
+    public void record(String name, long value) {
+        histogram(values, name).record(value);
+    }
+
+    @Override
+    public void recordTime(String name, long nanos) {
+        histogram(timers, name).record(nanos);
+    }
+
+    /**
+     * @param name
+     * @return The value of the counter, 0 if it was not used.
+     */
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @param name
+     * @return The histogram of the values, null if it was not used.
+     */
+    public Histogram getHistogram(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * @param name
+     * @return The histogram of the latencies in nanoseconds, null if the
+     * timer was not used.
+     */
+    public Histogram getTimer(String name) {
+        return timers.get(name);
+    }
+
+    /**
+     * Writes the measurements as JSON sorted by name, the timers in
+     * milliseconds.
+     *
+     * @param writer Not closed.
+     * @throws IOException
+     */
+    public void writeJson(Writer writer) throws IOException {
+        JsonGenerator gen = new JsonFactory().createGenerator(writer);
+        gen.useDefaultPrettyPrinter();
+        gen.writeStartObject();
+        gen.writeObjectFieldStart("counters");
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            gen.writeNumberField(counter.getKey(), counter.getValue().sum());
+        }
+        gen.writeEndObject();
+        gen.writeObjectFieldStart("timers");
+        for (Map.Entry<String, Histogram> timer : new TreeMap<>(timers).entrySet()) {
+            writeHistogram(gen, timer.getKey(), timer.getValue(), TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        gen.writeEndObject();
+        gen.writeObjectFieldStart("values");
+        for (Map.Entry<String, Histogram> value : new TreeMap<>(values).entrySet()) {
+            writeHistogram(gen, value.getKey(), value.getValue(), 1);
+        }
+        gen.writeEndObject();
+        gen.writeEndObject();
+        gen.flush();
+    }
+
+    private static void writeHistogram(JsonGenerator gen, String name, Histogram histogram, double unit) throws IOException {
+        gen.writeObjectFieldStart(name);
+        gen.writeNumberField("count", histogram.getCount());
+        gen.writeNumberField("sum", histogram.getSum() / unit);
+        gen.writeNumberField("mean", histogram.getMean() / unit);
+        for (double percentile : PERCENTILES) {
+            gen.writeNumberField("p" + (int) percentile, histogram.getValueAtPercentile(percentile) / unit);
+        }
+        gen.writeNumberField("max", histogram.getMax() / unit);
+        gen.writeEndObject();
+    }
+
+    private static Histogram histogram(ConcurrentMap<String, Histogram> histograms, String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, n -> new Histogram());
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the invocations of the content stream operators, e.g. 'Tj' or
+ * 'Do', of every page and worker of a document.
+ *
+ * The time of an operator includes the operators it runs, e.g. the ones of a
+ * form invoked by 'Do'; the self time excludes them. The depth is the number
+ * of operators the operator is nested in, 0 for the operators of the page
+ * content stream.
+ */
+public final class OperatorProfiler {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final ConcurrentMap<String, OperatorStats> operators = new ConcurrentHashMap<>();
+
+    /**
+     * @param operator
+     * @param nanos Time of the invocation.
+     * @param selfNanos Time of the invocation without the nested operators.
+     * @param depth
+     */
+    public void record(String operator, long nanos, long selfNanos, int depth) {
+        OperatorStats stats = operators.get(operator);
+        if (stats == null) {
+            stats = operators.computeIfAbsent(operator, OperatorStats::new);
+        }
+        stats.record(nanos, selfNanos, depth);
+    }
+
+    /**
+     * @param operator
+     * @return The statistics of the operator, null if it was not invoked.
+     */
+    public OperatorStats getStats(String operator) {
+        return operators.get(operator);
+    }
+
+    /**
+     * @return The statistics of the invoked operators, by decreasing self
+     * time.
+     */
+    public List<OperatorStats> getHotspots() {
+        List<OperatorStats> hotspots = new ArrayList<>(operators.values());
+        hotspots.sort(Comparator.comparingLong(OperatorStats::getSelfNanos).reversed()
+                .thenComparing(OperatorStats::getOperator));
+        return hotspots;
+    }
+
+    /**
+     * Writes the operators as a table by decreasing self time, the times in
+     * milliseconds.
+     *
+     * @param writer Not closed.
+     * @param title First line of the report, e.g. the name of the document.
+     * @throws IOException
+     */
+    public void writeReport(Writer writer, String title) throws IOException {
+        List<OperatorStats> hotspots = getHotspots();
+        long totalSelfNanos = 0;
+        for (OperatorStats stats : hotspots) {
+            totalSelfNanos += stats.getSelfNanos();
+        }
+        PrintWriter out = new PrintWriter(writer);
+        out.println(title);
+        out.printf(Locale.ROOT, "%-10s %10s %12s %12s %7s %10s %9s%n", "operator", "count", "total ms", "self ms", "self %", "max ms", "max depth");
+        for (OperatorStats stats : hotspots) {
+            out.printf(Locale.ROOT, "%-10s %10d %12.3f %12.3f %7.1f %10.3f %9d%n", stats.getOperator(), stats.getCount(),
+                    stats.getNanos() / NANOS_PER_MILLI, stats.getSelfNanos() / NANOS_PER_MILLI,
+                    totalSelfNanos == 0 ? 0 : 100d * stats.getSelfNanos() / totalSelfNanos,
+                    stats.getMaxNanos() / NANOS_PER_MILLI, stats.getMaxDepth());
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Failed to write the operator report.");
+        }
+    }
+
+    /**
+     * The invocations of one operator.
+     */
+    public static final class OperatorStats {
+
+        private final String operator;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder selfNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+        OperatorStats(String operator) {
+            this.operator = operator;
+        }
+
+        void record(long invocationNanos, long invocationSelfNanos, int depth) {
+            count.increment();
+            nanos.add(invocationNanos);
+            selfNanos.add(invocationSelfNanos);
+            maxNanos.accumulate(invocationNanos);
+            maxDepth.accumulate(depth);
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getSelfNanos() {
+            return selfNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public int getMaxDepth() {
+            return (int) maxDepth.get();
+        }
+    }
+}
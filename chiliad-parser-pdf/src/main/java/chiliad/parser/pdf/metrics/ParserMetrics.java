@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.metrics;
+
+/**
+ * Receives the measurements of the parser and the extractors. The names are
+ * dot separated, e.g. "extractor.TextExtractor" or "text.glyphs".
+ *
+ * The methods are called on the hot path of the parsing, from every worker
+ * thread, an implementation has to be thread safe and cheap.
+ */
+public interface ParserMetrics {
+
+    /**
+     * Ignores every measurement, the default of the parser.
+     */
+    ParserMetrics NOOP = new ParserMetrics() {
+    };
+
+    /**
+     * @return False if the measurements are ignored, so the ones costing more
+     * than a call can be skipped.
+     */
+    default boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * @param name
+     * @param delta Added to the counter.
+     */
+    default void count(String name, long delta) {
+    }
+
+    /**
+     * Records a value into the histogram, e.g. the number of tokens of a page.
+     *
+     * @param name
+     * @param value Not negative.
+     */
+    default void record(String name, long value) {
+    }
+
+    /**
+     * Records a latency into the histogram of the timer.
+     *
+     * @param name
+     * @param nanos
+     */
+    default void recordTime(String name, long nanos) {
+    }
+}
@@ -15,6 +15,8 @@
  */
 package chiliad.parser.pdf.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
@@ -30,6 +32,10 @@ public class MPage implements Serializable {
     private List<MImage> images = new LinkedList<>();
     private List<MToken> tokens = new LinkedList<>();
     private MVectorGraphics vectorGraphics = null;
+    /**
+     * Why the extraction of the page stopped early, null for a complete page.
+     */
+    private String truncation;
 
     public static MPage newInstance(String sourceId, Integer pageNumber, Double width, Double height) {
         MPage p = new MPage();
@@ -112,4 +118,22 @@ public class MPage implements Serializable {
         this.vectorGraphics = vectorGraphics;
     }
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getTruncation() {
+        return truncation;
+    }
+
+    public void setTruncation(String truncation) {
+        this.truncation = truncation;
+    }
+
+    /**
+     * @return True if the page holds only the part extracted within the page
+     * budget.
+     */
+    @JsonIgnore
+    public boolean isTruncated() {
+        return truncation != null;
+    }
+
 }
@@ -15,6 +15,7 @@
  */
 package chiliad.parser.pdf.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.MoreObjects;
 
 import java.awt.Color;
@@ -24,24 +25,24 @@ import static org.apache.commons.lang.StringUtils.*;
 
 public class MToken implements Boundable, Serializable {
 
-	private static final long serialVersionUID = 2665396432824852438L;
+	/**
+	 * Changed with the colors stored as ARGB ints instead of rgba strings.
+	 */
+	private static final long serialVersionUID = 2665396432824852439L;
 
 	private String text;
 	/**
-	 * RGBA format, rgba(red, green, blue, alpha). 
+	 * Packed ARGB (see {@link Color#getRGB()}), written in RGBA format,
+	 * rgba(red, green, blue, alpha). 
 	 * The intensity of the color and can be an integer between 0 and 255. 
 	 * The alpha parameter is a number between 0.0 (fully transparent) and 1.0 (fully opaque).
 	 * For example 'rgba(255, 0, 0, 0.3)' is red with opacity.
 	 */
-	private String strokingColor;
+	private Integer strokingColor;
 	/**
-	 * RGBA format, rgba(red, green, blue, alpha). 
-	 * The intensity of the color and can be an integer between 0 and 255. 
-	 * The alpha parameter is a number between 0.0 (fully transparent) and 1.0 (fully opaque).
-	 * number between 0.0 (fully transparent) and 1.0 (fully opaque).
-	 * For example 'rgba(255, 0, 0, 0.3)' is red with opacity.
+	 * Packed ARGB, written in RGBA format like the stroking color.
 	 */
-	private String nonStrokingColor;
+	private Integer nonStrokingColor;
 	private Double fontSizeInPt;
 	private String fontFamily;
 	private String fontName;
@@ -79,12 +80,32 @@ public class MToken implements Boundable, Serializable {
 		int r = Integer.valueOf(trimToEmpty(comp[0]));
 		int g = Integer.valueOf(trimToEmpty(comp[1]));
 		int b = Integer.valueOf(trimToEmpty(comp[2]));
-		int a = (int)(Double.valueOf(trimToEmpty(comp[3])) * 255);
+		int a = (int) Math.round(Double.valueOf(trimToEmpty(comp[3])) * 255);
 		return new Color(r, g, b, a);
 	}
 
 	public static String colorToRgba(Color c) {
-		return "rgba(" + c.getRed() + "," +c.getGreen()+ "," + c.getBlue() + "," + c.getAlpha() / 255 + ")";
+		return argbToRgba(c.getRGB());
+	}
+
+	/**
+	 * @param argb Packed ARGB, see {@link Color#getRGB()}.
+	 * @return The color in RGBA format, the alpha with at most 3 decimals.
+	 */
+	public static String argbToRgba(int argb) {
+		return "rgba(" + ((argb >> 16) & 0xFF) + "," + ((argb >> 8) & 0xFF) + "," + (argb & 0xFF) + ","
+				+ alphaToString((argb >>> 24) & 0xFF) + ")";
+	}
+
+	private static String alphaToString(int alpha) {
+		if (alpha == 255) {
+			return "1";
+		}
+		int thousandths = Math.round(alpha * 1000f / 255f);
+		if (thousandths == 0) {
+			return "0";
+		}
+		return stripEnd("0." + leftPad(Integer.toString(thousandths), 3, '0'), "0");
 	}
 
 	public String getText() {
@@ -96,18 +117,36 @@ public class MToken implements Boundable, Serializable {
 	}
 
 	public String getStrokingColor() {
-		return strokingColor;
+		return strokingColor == null ? null : argbToRgba(strokingColor);
 	}
 
 	public void setStrokingColor(String strokingColor) {
+		this.strokingColor = strokingColor == null ? null : rgbaToColor(strokingColor).getRGB();
+	}
+
+	@JsonIgnore
+	public Integer getStrokingArgb() {
+		return strokingColor;
+	}
+
+	public void setStrokingArgb(int strokingColor) {
 		this.strokingColor = strokingColor;
 	}
 
 	public String getNonStrokingColor() {
-		return nonStrokingColor;
+		return nonStrokingColor == null ? null : argbToRgba(nonStrokingColor);
 	}
 
 	public void setNonStrokingColor(String nonStrokingColor) {
+		this.nonStrokingColor = nonStrokingColor == null ? null : rgbaToColor(nonStrokingColor).getRGB();
+	}
+
+	@JsonIgnore
+	public Integer getNonStrokingArgb() {
+		return nonStrokingColor;
+	}
+
+	public void setNonStrokingArgb(int nonStrokingColor) {
 		this.nonStrokingColor = nonStrokingColor;
 	}
 
@@ -200,8 +239,8 @@ public class MToken implements Boundable, Serializable {
 		return MoreObjects.toStringHelper(this).add("text", text).add("x", x)
 				.add("y", y).add("width", width).add("height", height)
 				.add("fontName", fontName).add("fontSizeInPt", fontSizeInPt)
-				.add("strokingColor", strokingColor)
-				.add("nonStrokingColor", nonStrokingColor).toString();
+				.add("strokingColor", getStrokingColor())
+				.add("nonStrokingColor", getNonStrokingColor()).toString();
 	}
 
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import chiliad.parser.pdf.model.MPage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorator passing the calls to the decorated output on a dedicated thread,
+ * so the extraction of the next pages and the serialization of the previous
+ * ones overlap.
+ *
+ * At most capacity pages are queued in the memory. When the queue is full the
+ * caller either waits ({@link Backpressure#BLOCK}) or the page is serialized
+ * into a spill file and read back by the output thread
+ * ({@link Backpressure#SPILL}). The order of the calls is kept.
+ *
+ * A failure of the decorated output is thrown by the next call, at the
+ * latest by {@link #endDocument(PDDocument)}, which waits until every queued
+ * call is written. The decorated output gets the pdfbox objects on the output
+ * thread, it should not read the document. When the parsing fails
+ * {@link #abort()} ends the output thread instead.
+ */
+public class AsyncOutput implements ParserOutputWriter {
+
+    final static org.slf4j.Logger LOG = LoggerFactory.getLogger(AsyncOutput.class);
+
+    public enum Backpressure {
+
+        /**
+         * The caller waits for free space in the queue.
+         */
+        BLOCK,
+        /**
+         * The page is written into a spill file in the spill directory.
+         */
+        SPILL
+    }
+
+    private enum Kind {
+
+        START_DOCUMENT, START_PAGE, PAGE_CONTENT, END_PAGE, END_DOCUMENT, ABORT
+    }
+
+    private static final class Event {
+
+        private final Kind kind;
+        private final Object value;
+
+        Event(Kind kind, Object value) {
+            this.kind = kind;
+            this.value = value;
+        }
+    }
+
+    private final ParserOutputWriter output;
+    private final int capacity;
+    private final Backpressure backpressure;
+    private final File spillDirectory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    /**
+     * Queued calls, a spilled page content is queued as its spill file.
+     */
+    private final Deque<Event> events = new ArrayDeque<>();
+    private int pagesInMemory;
+    private volatile Throwable failure;
+    private final Thread thread;
+
+    /**
+     * Blocking output.
+     *
+     * @param output
+     * @param capacity Number of pages queued in the memory.
+     */
+    public AsyncOutput(ParserOutputWriter output, int capacity) {
+        this(output, capacity, Backpressure.BLOCK, null);
+    }
+
+    /**
+     *
+     * @param output
+     * @param capacity Number of pages queued in the memory.
+     * @param backpressure
+     * @param spillDirectory Directory of the spill files, the default
+     * temporary directory if null.
+     */
+    public AsyncOutput(ParserOutputWriter output, int capacity, Backpressure backpressure, File spillDirectory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.output = output;
+        this.capacity = capacity;
+        this.backpressure = backpressure;
+        this.spillDirectory = spillDirectory;
+        this.thread = new Thread(this::writeEvents, "chiliad-output");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void startDocument(PDDocument document) {
+        enqueue(new Event(Kind.START_DOCUMENT, document));
+    }
+
+    @Override
+    public void startPage(PDPage page) {
+        enqueue(new Event(Kind.START_PAGE, page));
+    }
+
+    @Override
+    public void processPageContent(MPage page) {
+        checkFailure();
+        lock.lock();
+        try {
+            while (pagesInMemory >= capacity && backpressure == Backpressure.BLOCK && failure == null) {
+                notFull.awaitUninterruptibly();
+            }
+            checkFailure();
+            if (pagesInMemory < capacity) {
+                pagesInMemory++;
+                add(new Event(Kind.PAGE_CONTENT, page));
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        checkFailure();
+        enqueue(new Event(Kind.PAGE_CONTENT, spill(page)));
+    }
+
+    @Override
+    public void endPage(PDPage page) {
+        enqueue(new Event(Kind.END_PAGE, page));
+    }
+
+    @Override
+    public void endDocument(PDDocument document) {
+        enqueue(new Event(Kind.END_DOCUMENT, document));
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ParserOutputException("Interrupted while waiting for the output.", ex);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Writes the queued calls, then aborts the decorated output and waits
+     * until the output thread ends. A failure of the output is only logged, so
+     * the failure of the parsing is not hidden.
+     */
+    @Override
+    public void abort() {
+        lock.lock();
+        try {
+            add(new Event(Kind.ABORT, null));
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Event event) {
+        checkFailure();
+        lock.lock();
+        try {
+            add(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(Event event) {
+        events.addLast(event);
+        notEmpty.signal();
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new ParserOutputException("Failed to write the output.", failure);
+        }
+    }
+
+    private void writeEvents() {
+        while (true) {
+            Event event = take();
+            try {
+                write(event);
+            } catch (Throwable ex) {
+                LOG.error("Failed to write the output.", ex);
+                fail(ex);
+                if (event.kind != Kind.END_DOCUMENT && event.kind != Kind.ABORT) {
+                    output.abort();
+                }
+                return;
+            }
+            if (event.kind == Kind.END_DOCUMENT || event.kind == Kind.ABORT) {
+                return;
+            }
+        }
+    }
+
+    private Event take() {
+        lock.lock();
+        try {
+            while (events.isEmpty()) {
+                notEmpty.awaitUninterruptibly();
+            }
+            Event event = events.removeFirst();
+            if (event.value instanceof MPage) {
+                pagesInMemory--;
+                notFull.signal();
+            }
+            return event;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Event event) throws IOException {
+        switch (event.kind) {
+            case START_DOCUMENT:
+                output.startDocument((PDDocument) event.value);
+                break;
+            case START_PAGE:
+                output.startPage((PDPage) event.value);
+                break;
+            case PAGE_CONTENT:
+                output.processPageContent(event.value instanceof File ? unspill((File) event.value) : (MPage) event.value);
+                break;
+            case END_PAGE:
+                output.endPage((PDPage) event.value);
+                break;
+            case END_DOCUMENT:
+                output.endDocument((PDDocument) event.value);
+                break;
+            case ABORT:
+                output.abort();
+                break;
+        }
+    }
+
+    /**
+     * Stops the output after a failure: the waiting caller is released and the
+     * spill files of the queued pages are deleted.
+     */
+    private void fail(Throwable ex) {
+        lock.lock();
+        try {
+            failure = ex;
+            for (Event event : events) {
+                if (event.value instanceof File) {
+                    ((File) event.value).delete();
+                }
+            }
+            events.clear();
+            pagesInMemory = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private File spill(MPage page) {
+        try {
+            File file = File.createTempFile("chiliad-page", ".spill", spillDirectory);
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.writeObject(page);
+            } catch (IOException | RuntimeException ex) {
+                file.delete();
+                throw ex;
+            }
+            return file;
+        } catch (IOException ex) {
+            throw new ParserOutputException("Failed to spill page " + page.getPageNumber() + ".", ex);
+        }
+    }
+
+    private static MPage unspill(File file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (MPage) in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Invalid spill file " + file + ".", ex);
+        } finally {
+            file.delete();
+        }
+    }
+}
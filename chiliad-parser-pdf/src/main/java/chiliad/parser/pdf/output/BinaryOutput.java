@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import chiliad.parser.pdf.codec.BinaryPageWriter;
+import chiliad.parser.pdf.model.MPage;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the pages in the binary page format, readable by
+ * {@link chiliad.parser.pdf.codec.BinaryPageReader}.
+ */
+public class BinaryOutput implements ParserOutputWriter {
+
+    final static org.slf4j.Logger LOG = LoggerFactory.getLogger(BinaryOutput.class);
+
+    private final BinaryPageWriter writer;
+
+    public BinaryOutput(OutputStream out) {
+        this.writer = new BinaryPageWriter(out);
+    }
+
+    @Override
+    public void startDocument(PDDocument document) {
+    }
+
+    @Override
+    public void startPage(PDPage page) {
+    }
+
+    @Override
+    public void processPageContent(MPage page) {
+        try {
+            writer.write(page);
+        } catch (IOException ex) {
+            throw new ParserOutputException("Failed to write binary output.", ex);
+        }
+    }
+
+    @Override
+    public void endPage(PDPage page) {
+    }
+
+    @Override
+    public void endDocument(PDDocument document) {
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            throw new ParserOutputException("Failed to write binary output.", ex);
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    @Override
+    public void abort() {
+        IOUtils.closeQuietly(writer);
+    }
+}
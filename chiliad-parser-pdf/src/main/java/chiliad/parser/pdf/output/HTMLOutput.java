@@ -19,7 +19,7 @@ import chiliad.parser.pdf.model.MImage;
 import chiliad.parser.pdf.model.MPage;
 import chiliad.parser.pdf.model.MToken;
 import chiliad.parser.pdf.model.MVectorGraphics;
-import java.awt.Color;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
 import org.apache.commons.io.IOUtils;
@@ -27,7 +27,10 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.slf4j.LoggerFactory;
 
-//TODO generate html by stax
+/**
+ * Writes the pages as HTML. The markup is written directly to the writer, the
+ * texts and attribute values are escaped.
+ */
 public class HTMLOutput implements ParserOutputWriter {
 
     final static org.slf4j.Logger LOG = LoggerFactory.getLogger(HTMLOutput.class);
@@ -40,7 +43,7 @@ public class HTMLOutput implements ParserOutputWriter {
     private final double ratioBetweenScreenAndPDFResolution = 96d / 72d;
 
     public HTMLOutput(Writer writer) {
-        this.writer = writer;
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
     }
 
     @Override
@@ -96,35 +99,40 @@ public class HTMLOutput implements ParserOutputWriter {
     @Override
     public void processPageContent(MPage p) {
         try {
-            writer.append("<p:pageContent pageNumber='").append(p.getPageNumber().toString()).append("' width='").append(p.getWidth().toString()).append("' height='").append(p.getHeight().toString()).append("'>").append("\n");
-
-            writer.append("<p:images>").append("\n");
-            p.getImages().forEach(i -> {
-                try {
-                    writer.append("\t").append(imageToHTML(i)).append("\n");
-                } catch (IOException ex) {
-                    throw new ParserOutputException("Failed to write pageContent.", ex);
-                }
-            });
-            writer.append("</p:images>").append("\n");
-
-            writer.append("<p:vectorGraphics>").append("\n");
+            writer.write("<p:pageContent pageNumber='");
+            writer.write(p.getPageNumber().toString());
+            writer.write("' width='");
+            writer.write(p.getWidth().toString());
+            writer.write("' height='");
+            writer.write(p.getHeight().toString());
+            if (p.isTruncated()) {
+                writer.write("' truncation='");
+                writer.write(p.getTruncation());
+            }
+            writer.write("'>\n");
+
+            writer.write("<p:images>\n");
+            for (MImage i : p.getImages()) {
+                writeImage(i);
+            }
+            writer.write("</p:images>\n");
+
+            writer.write("<p:vectorGraphics>\n");
             MVectorGraphics vg = p.getVectorGraphics();
             if (vg != null) {
-                writer.append("\t").append(vg.getSvgContent()).append("\n");
-                writer.append("</p:vectorGraphics>").append("\n");
+                writer.write("\t");
+                writer.write(vg.getSvgContent());
+                writer.write("\n");
             }
-            writer.append("<p:tokens>").append("\n");
-            p.getTokens().forEach(t -> {
-                try {
-                    writer.append("\t").append(tokenToHTML(t)).append("\n");
-                } catch (IOException ex) {
-                    throw new ParserOutputException("Failed to write pageContent.", ex);
-                }
-            });
-            writer.append("</p:tokens>").append("\n");
-
-            writer.append("</p:pageContent>").append("\n");
+            writer.write("</p:vectorGraphics>\n");
+
+            writer.write("<p:tokens>\n");
+            for (MToken t : p.getTokens()) {
+                writeToken(t);
+            }
+            writer.write("</p:tokens>\n");
+
+            writer.write("</p:pageContent>\n");
         } catch (IOException ex) {
             throw new ParserOutputException("Failed to write pageContent.", ex);
         }
@@ -151,56 +159,125 @@ public class HTMLOutput implements ParserOutputWriter {
         }
     }
 
-    private String tokenToHTML(MToken t) {
-        StringBuilder fragment = new StringBuilder();
-        fragment.append("<p:token x='$x' y='$y' width='$w' height='$h'>");
-        fragment.append("<span class='token' title='${title}' style='top: $toppx; left: $leftpx;  font-weight: $font-weight; font-size: $font-sizept; color: $color;' >");
-        //width: $widthpx; height: $heightpx;
-        fragment.append(t.getText());
-        fragment.append("</span>");
-        fragment.append("</p:token>");
-        String s = fragment.toString();
-        s = s.replace("${title}", t.toString());
-        //replace span
-        s = s.replace("$top", scale(t.getY() - t.getHeight()));
-        s = s.replace("$left", scale(t.getX()));
-        //s = s.replace("$width", ratioBetweenScreenAndPDFResolution(t.getWidth()));
-        //s = s.replace("$height", ratioBetweenScreenAndPDFResolution(t.getHeight()));
-        s = s.replace("$font-weight", String.valueOf(t.getFontWeight().intValue()));
-        s = s.replace("$font-size", String.valueOf(t.getFontSizeInPt()));
-        //replace token
-        s = s.replace("$x", String.valueOf(t.getX()));
-        s = s.replace("$y", String.valueOf(t.getY()));
-        s = s.replace("$w", String.valueOf(t.getWidth()));
-        s = s.replace("$h", String.valueOf(t.getHeight()));
-        s = s.replace("$color", t.getNonStrokingColor());
-        return s;
+    private void writeToken(MToken t) throws IOException {
+        writer.write("\t<p:token x='");
+        writer.write(String.valueOf(t.getX()));
+        writer.write("' y='");
+        writer.write(String.valueOf(t.getY()));
+        writer.write("' width='");
+        writer.write(String.valueOf(t.getWidth()));
+        writer.write("' height='");
+        writer.write(String.valueOf(t.getHeight()));
+        writer.write("'><span class='token' title='");
+        writeTitle(t);
+        writer.write("' style='top: ");
+        writeScaled(t.getY() - t.getHeight());
+        writer.write("px; left: ");
+        writeScaled(t.getX());
+        writer.write("px;  font-weight: ");
+        writer.write(String.valueOf(t.getFontWeight().intValue()));
+        writer.write("; font-size: ");
+        writer.write(String.valueOf(t.getFontSizeInPt()));
+        writer.write("pt; color: ");
+        writer.write(t.getNonStrokingColor());
+        writer.write(";' >");
+        writeEscaped(t.getText());
+        writer.write("</span></p:token>\n");
     }
 
-    private String imageToHTML(MImage i) {
-        StringBuilder fragment = new StringBuilder();
-        fragment.append("<p:image x='$x' y='$y' width='$w' height='$h' imageName='$imageName'>");
-        fragment.append("<div class='image' style='top: $toppx; left: $leftpx; width: $widthpx; height: $heightpx'> ");
-        fragment.append(i.getImageName());
-        fragment.append("</div>");
-        fragment.append("</p:image>");
-        String s = fragment.toString();
-        //replace div image
-        s = s.replace("$top", scale(i.getY()));
-        s = s.replace("$left", scale(i.getX()));
-        s = s.replace("$width", scale((double) i.getWidth()));
-        s = s.replace("$height", scale((double) i.getHeight()));
-        //replace token
-        s = s.replace("$x", String.valueOf(i.getX()));
-        s = s.replace("$y", String.valueOf(i.getY()));
-        s = s.replace("$w", String.valueOf(i.getWidth()));
-        s = s.replace("$h", String.valueOf(i.getHeight()));
-        s = s.replace("$imageName", i.getImageName());
-        return s;
+    /**
+     * Writes the same text as {@link MToken#toString()} without creating it.
+     */
+    private void writeTitle(MToken t) throws IOException {
+        writer.write("MToken{text=");
+        writeEscaped(t.getText());
+        writer.write(", x=");
+        writer.write(String.valueOf(t.getX()));
+        writer.write(", y=");
+        writer.write(String.valueOf(t.getY()));
+        writer.write(", width=");
+        writer.write(String.valueOf(t.getWidth()));
+        writer.write(", height=");
+        writer.write(String.valueOf(t.getHeight()));
+        writer.write(", fontName=");
+        writeEscaped(t.getFontName());
+        writer.write(", fontSizeInPt=");
+        writer.write(String.valueOf(t.getFontSizeInPt()));
+        writer.write(", strokingColor=");
+        writer.write(String.valueOf(t.getStrokingColor()));
+        writer.write(", nonStrokingColor=");
+        writer.write(String.valueOf(t.getNonStrokingColor()));
+        writer.write("}");
     }
 
-    private String scale(Double d) {
-        return String.valueOf((int) (d * ratioBetweenScreenAndPDFResolution));
+    private void writeImage(MImage i) throws IOException {
+        writer.write("\t<p:image x='");
+        writer.write(String.valueOf(i.getX()));
+        writer.write("' y='");
+        writer.write(String.valueOf(i.getY()));
+        writer.write("' width='");
+        writer.write(String.valueOf(i.getWidth()));
+        writer.write("' height='");
+        writer.write(String.valueOf(i.getHeight()));
+        writer.write("' imageName='");
+        writeEscaped(i.getImageName());
+        writer.write("'><div class='image' style='top: ");
+        writeScaled(i.getY());
+        writer.write("px; left: ");
+        writeScaled(i.getX());
+        writer.write("px; width: ");
+        writeScaled(i.getWidth());
+        writer.write("px; height: ");
+        writeScaled(i.getHeight());
+        writer.write("px'> ");
+        writeEscaped(i.getImageName());
+        writer.write("</div></p:image>\n");
     }
 
+    /**
+     * Writes the text escaped for both element content and quoted attribute
+     * values. Unchanged runs are written without copying.
+     */
+    private void writeEscaped(String text) throws IOException {
+        if (text == null) {
+            writer.write("null");
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '\'':
+                    entity = "&#39;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                default:
+                    continue;
+            }
+            writer.write(text, start, i - start);
+            writer.write(entity);
+            start = i + 1;
+        }
+        writer.write(text, start, text.length() - start);
+    }
+
+    private void writeScaled(Double d) throws IOException {
+        writer.write(Integer.toString((int) (d * ratioBetweenScreenAndPDFResolution)));
+    }
+
+    @Override
+    public void abort() {
+        IOUtils.closeQuietly(writer);
+    }
 }
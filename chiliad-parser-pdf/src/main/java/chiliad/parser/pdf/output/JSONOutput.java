@@ -18,8 +18,6 @@ package chiliad.parser.pdf.output;
 import chiliad.parser.pdf.model.MPage;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import java.io.IOException;
 import java.io.Writer;
 import org.apache.commons.io.IOUtils;
@@ -27,6 +25,10 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Writes the pages as a JSON array. The pages are serialized directly to the
+ * generator, either indented (default) or compact.
+ */
 public class JSONOutput implements ParserOutputWriter {
 
     final static org.slf4j.Logger LOG = LoggerFactory.getLogger(JSONOutput.class);
@@ -34,12 +36,24 @@ public class JSONOutput implements ParserOutputWriter {
     private JsonGenerator gen;
 
     public JSONOutput(Writer writer) {
+        this(writer, false);
+    }
+
+    /**
+     *
+     * @param writer
+     * @param compact Without indentation and line breaks.
+     */
+    public JSONOutput(Writer writer, boolean compact) {
         JsonFactory jfactory = new JsonFactory();
         try {
             gen = jfactory.createGenerator(writer);
         } catch (IOException ex) {
             throw new ParserOutputException("Failed to writer JSON output.", ex);
         }
+        if (!compact) {
+            gen.useDefaultPrettyPrinter();
+        }
     }
 
     @Override
@@ -57,13 +71,11 @@ public class JSONOutput implements ParserOutputWriter {
 
     @Override
     public void processPageContent(MPage page) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         try {
-			mapper.writeValue(gen, page);
-		} catch (IOException e) {
-			throw new ParserOutputException("Failed to writer JSON output.", e);
-		}
+            JSONPageSerializer.writePage(gen, page);
+        } catch (IOException ex) {
+            throw new ParserOutputException("Failed to writer JSON output.", ex);
+        }
     }
 
     @Override
@@ -82,4 +94,8 @@ public class JSONOutput implements ParserOutputWriter {
         }
     }
 
+    @Override
+    public void abort() {
+        IOUtils.closeQuietly(gen);
+    }
 }
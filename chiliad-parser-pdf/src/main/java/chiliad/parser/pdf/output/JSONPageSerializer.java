@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import chiliad.parser.pdf.model.MImage;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import chiliad.parser.pdf.model.MVectorGraphics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the page model directly to a JSON generator. The properties and
+ * their order are the same as the bean serialization of the model by Jackson,
+ * but without the per type introspection and intermediate objects.
+ */
+final class JSONPageSerializer {
+
+    private JSONPageSerializer() {
+    }
+
+    static void writePage(JsonGenerator gen, MPage page) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("sourceId", page.getSourceId());
+        writeIntegerField(gen, "pageNumber", page.getPageNumber());
+        writeDoubleField(gen, "width", page.getWidth());
+        writeDoubleField(gen, "height", page.getHeight());
+        gen.writeFieldName("images");
+        writeImages(gen, page.getImages());
+        gen.writeFieldName("tokens");
+        writeTokens(gen, page.getTokens());
+        gen.writeFieldName("vectorGraphics");
+        writeVectorGraphics(gen, page.getVectorGraphics());
+        if (page.isTruncated()) {
+            gen.writeStringField("truncation", page.getTruncation());
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeImages(JsonGenerator gen, List<MImage> images) throws IOException {
+        if (images == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (MImage image : images) {
+            gen.writeStartObject();
+            gen.writeStringField("imageName", image.getImageName());
+            writeDoubleField(gen, "x", image.getX());
+            writeDoubleField(gen, "y", image.getY());
+            writeDoubleField(gen, "width", image.getWidth());
+            writeDoubleField(gen, "height", image.getHeight());
+            gen.writeFieldName("imageBytes");
+            if (image.getImageBytes() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeBinary(image.getImageBytes());
+            }
+            writeDoubleField(gen, "minX", image.getMinX());
+            writeDoubleField(gen, "minY", image.getMinY());
+            writeDoubleField(gen, "maxX", image.getMaxX());
+            writeDoubleField(gen, "maxY", image.getMaxY());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeTokens(JsonGenerator gen, List<MToken> tokens) throws IOException {
+        if (tokens == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (MToken token : tokens) {
+            gen.writeStartObject();
+            gen.writeStringField("text", token.getText());
+            gen.writeStringField("strokingColor", token.getStrokingColor());
+            gen.writeStringField("nonStrokingColor", token.getNonStrokingColor());
+            writeDoubleField(gen, "fontSizeInPt", token.getFontSizeInPt());
+            gen.writeStringField("fontFamily", token.getFontFamily());
+            gen.writeStringField("fontName", token.getFontName());
+            writeDoubleField(gen, "fontWeight", token.getFontWeight());
+            writeDoubleField(gen, "x", token.getX());
+            writeDoubleField(gen, "y", token.getY());
+            writeDoubleField(gen, "width", token.getWidth());
+            writeDoubleField(gen, "height", token.getHeight());
+            writeDoubleField(gen, "minX", token.getMinX());
+            writeDoubleField(gen, "minY", token.getMinY());
+            writeDoubleField(gen, "maxX", token.getMaxX());
+            writeDoubleField(gen, "maxY", token.getMaxY());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeVectorGraphics(JsonGenerator gen, MVectorGraphics vectorGraphics) throws IOException {
+        if (vectorGraphics == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("svgContent", vectorGraphics.getSvgContent());
+        gen.writeEndObject();
+    }
+
+    private static void writeDoubleField(JsonGenerator gen, String name, Double value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeIntegerField(JsonGenerator gen, String name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import chiliad.parser.pdf.model.MPage;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.Writer;
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes every page as a compact JSON object on its own line (newline
+ * delimited JSON). A page is flushed when it is written, so the output can be
+ * read while the document is parsed and the complete lines of an interrupted
+ * run are valid.
+ */
+public class NDJSONOutput implements ParserOutputWriter {
+
+    final static org.slf4j.Logger LOG = LoggerFactory.getLogger(NDJSONOutput.class);
+
+    private JsonGenerator gen;
+
+    public NDJSONOutput(Writer writer) {
+        JsonFactory jfactory = new JsonFactory();
+        try {
+            gen = jfactory.createGenerator(writer);
+        } catch (IOException ex) {
+            throw new ParserOutputException("Failed to writer NDJSON output.", ex);
+        }
+        gen.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void startDocument(PDDocument document) {
+    }
+
+    @Override
+    public void startPage(PDPage page) {
+    }
+
+    @Override
+    public void processPageContent(MPage page) {
+        try {
+            JSONPageSerializer.writePage(gen, page);
+            gen.writeRaw('\n');
+            gen.flush();
+        } catch (IOException ex) {
+            throw new ParserOutputException("Failed to writer NDJSON output.", ex);
+        }
+    }
+
+    @Override
+    public void endPage(PDPage page) {
+    }
+
+    @Override
+    public void endDocument(PDDocument document) {
+        try {
+            gen.close();
+        } catch (IOException ex) {
+            throw new ParserOutputException("Failed to writer NDJSON output.", ex);
+        } finally {
+            IOUtils.closeQuietly(gen);
+        }
+    }
+
+    @Override
+    public void abort() {
+        IOUtils.closeQuietly(gen);
+    }
+}
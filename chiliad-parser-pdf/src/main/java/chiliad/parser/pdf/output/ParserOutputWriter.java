@@ -30,4 +30,12 @@ public interface ParserOutputWriter {
     void endPage(PDPage page);
 
     void endDocument(PDDocument document);
+
+    /**
+     * Called instead of {@link #endDocument(PDDocument)} when the parsing
+     * failed, the output releases its resources. What was written so far is
+     * flushed, the output is incomplete.
+     */
+    default void abort() {
+    }
 }
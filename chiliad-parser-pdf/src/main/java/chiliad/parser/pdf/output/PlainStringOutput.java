@@ -90,4 +90,8 @@ public class PlainStringOutput implements ParserOutputWriter {
         }
     }
 
+    @Override
+    public void abort() {
+        IOUtils.closeQuietly(writer);
+    }
 }
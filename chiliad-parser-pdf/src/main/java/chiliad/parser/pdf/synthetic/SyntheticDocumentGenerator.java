@@ -0,0 +1,400 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.synthetic;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.edit.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.xobject.PDPixelMap;
+import org.apache.pdfbox.pdmodel.graphics.xobject.PDXObjectForm;
+import org.apache.pdfbox.pdmodel.graphics.xobject.PDXObjectImage;
+
+/**
+ * Generates PDF documents with a given amount of text, images, paths and
+ * nested forms, so the parser can be tested and measured at any scale
+ * without real documents.
+ *
+ * The document depends only on the parameters and the seed, the same
+ * parameters produce the same bytes. Every page has its own random
+ * generator, so the content of a page does not depend on the number of
+ * pages.
+ *
+ * The text is made of random words of the standard Type 1 fonts, written
+ * line by line and wrapping to the top of the page when it is full. The
+ * images are created once per document and drawn on every page; the inline
+ * images are ASCII hex encoded. The forms are chained, the page invokes the
+ * first one, each form invokes the next and the innermost one draws a line
+ * of text and a rectangle.
+ */
+public class SyntheticDocumentGenerator {
+
+    private static final PDFont[] FONTS = {
+        PDType1Font.HELVETICA, PDType1Font.TIMES_ROMAN, PDType1Font.COURIER,
+        PDType1Font.HELVETICA_BOLD, PDType1Font.TIMES_BOLD, PDType1Font.COURIER_BOLD,
+        PDType1Font.HELVETICA_OBLIQUE, PDType1Font.TIMES_ITALIC, PDType1Font.COURIER_OBLIQUE,
+        PDType1Font.HELVETICA_BOLD_OBLIQUE, PDType1Font.TIMES_BOLD_ITALIC, PDType1Font.COURIER_BOLD_OBLIQUE};
+
+    public static final int MAX_FONTS = FONTS.length;
+
+    private static final float MARGIN = 36;
+    private static final float LEADING = 1.2f;
+    private static final int MAX_WORD_LENGTH = 10;
+    private static final int SEGMENTS_PER_PATH = 16;
+
+    private long seed;
+    private int pages = 1;
+    private int glyphsPerPage = 2000;
+    private int fonts = 1;
+    private int imagesPerPage;
+    private int imageSize = 64;
+    private int pathSegmentsPerPage;
+    private int formDepth;
+    private int inlineImagesPerPage;
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setPages(int pages) {
+        this.pages = checkPositive("pages", pages);
+    }
+
+    /**
+     * @param glyphsPerPage Number of the characters of the words of a page,
+     * the spaces between the words are not drawn.
+     */
+    public void setGlyphsPerPage(int glyphsPerPage) {
+        this.glyphsPerPage = checkNotNegative("glyphsPerPage", glyphsPerPage);
+    }
+
+    /**
+     * @param fonts Number of the different fonts, at most {@link #MAX_FONTS}.
+     */
+    public void setFonts(int fonts) {
+        if (fonts < 1 || fonts > MAX_FONTS) {
+            throw new IllegalArgumentException("The number of fonts must be between 1 and " + MAX_FONTS + ": " + fonts);
+        }
+        this.fonts = fonts;
+    }
+
+    public void setImagesPerPage(int imagesPerPage) {
+        this.imagesPerPage = checkNotNegative("imagesPerPage", imagesPerPage);
+    }
+
+    /**
+     * @param imageSize Width and height of the images and inline images in
+     * pixels.
+     */
+    public void setImageSize(int imageSize) {
+        this.imageSize = checkPositive("imageSize", imageSize);
+    }
+
+    /**
+     * @param pathSegmentsPerPage Number of the line and curve segments of a
+     * page, stroked or filled in paths of 16 segments.
+     */
+    public void setPathSegmentsPerPage(int pathSegmentsPerPage) {
+        this.pathSegmentsPerPage = checkNotNegative("pathSegmentsPerPage", pathSegmentsPerPage);
+    }
+
+    /**
+     * @param formDepth Number of the nested forms invoked by a page, 0 for
+     * none.
+     */
+    public void setFormDepth(int formDepth) {
+        this.formDepth = checkNotNegative("formDepth", formDepth);
+    }
+
+    public void setInlineImagesPerPage(int inlineImagesPerPage) {
+        this.inlineImagesPerPage = checkNotNegative("inlineImagesPerPage", inlineImagesPerPage);
+    }
+
+    /**
+     * @return The generated document, to be closed by the caller.
+     * @throws IOException
+     */
+    public PDDocument generate() throws IOException {
+        PDDocument document = new PDDocument();
+        try {
+            List<PDXObjectImage> images = createImages(document);
+            PDXObjectForm form = createForms(document);
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDPage.PAGE_SIZE_LETTER);
+                document.addPage(page);
+                writePage(document, page, new Random(pageSeed(p)), images, form);
+            }
+            setDocumentId(document);
+            return document;
+        } catch (IOException | RuntimeException ex) {
+            document.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Generates the document and saves it into the stream.
+     *
+     * @param out Not closed.
+     * @throws IOException
+     */
+    public void generate(OutputStream out) throws IOException {
+        try (PDDocument document = generate()) {
+            document.save(out);
+        } catch (COSVisitorException ex) {
+            throw new IOException("Failed to save the synthetic document.", ex);
+        }
+    }
+
+    public void generate(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            generate(out);
+        }
+    }
+
+    private void writePage(PDDocument document, PDPage page, Random random, List<PDXObjectImage> images, PDXObjectForm form) throws IOException {
+        PDRectangle box = page.getMediaBox();
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            writePaths(content, random, box);
+            for (PDXObjectImage image : images) {
+                float x = MARGIN + random.nextFloat() * (box.getWidth() - 2 * MARGIN - imageSize);
+                float y = MARGIN + random.nextFloat() * (box.getHeight() - 2 * MARGIN - imageSize);
+                content.drawXObject(image, x, y, imageSize, imageSize);
+            }
+            for (int i = 0; i < inlineImagesPerPage; i++) {
+                writeInlineImage(content, random, box);
+            }
+            if (form != null) {
+                content.drawXObject(form, new AffineTransform());
+            }
+            writeText(content, random, box);
+        }
+    }
+
+    private void writeText(PDPageContentStream content, Random random, PDRectangle box) throws IOException {
+        if (glyphsPerPage == 0) {
+            return;
+        }
+        float fontSize = 6 + random.nextInt(7);
+        float left = MARGIN;
+        float right = box.getWidth() - MARGIN;
+        float top = box.getHeight() - MARGIN - fontSize;
+        PDFont font = FONTS[random.nextInt(fonts)];
+        content.beginText();
+        content.setFont(font, fontSize);
+        content.setTextTranslation(left, top);
+        float x = left;
+        float y = top;
+        int glyphs = 0;
+        while (glyphs < glyphsPerPage) {
+            if (fonts > 1 && random.nextInt(8) == 0) {
+                font = FONTS[random.nextInt(fonts)];
+                content.setFont(font, fontSize);
+            }
+            String word = randomWord(random, Math.min(1 + random.nextInt(MAX_WORD_LENGTH), glyphsPerPage - glyphs));
+            float width = font.getStringWidth(word) / 1000 * fontSize;
+            float space = font.getStringWidth(" ") / 1000 * fontSize;
+            if (x + width > right && x > left) {
+                x = left;
+                y -= fontSize * LEADING;
+                if (y < MARGIN) {
+                    y = top;
+                }
+                content.setTextTranslation(x, y);
+            }
+            content.drawString(word);
+            glyphs += word.length();
+            x += width + space;
+            content.setTextTranslation(x, y);
+        }
+        content.endText();
+    }
+
+    private void writePaths(PDPageContentStream content, Random random, PDRectangle box) throws IOException {
+        int segments = 0;
+        while (segments < pathSegmentsPerPage) {
+            int pathSegments = Math.min(SEGMENTS_PER_PATH, pathSegmentsPerPage - segments);
+            content.setStrokingColor(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            content.setNonStrokingColor(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            content.setLineWidth(0.5f + random.nextInt(4));
+            content.moveTo(randomX(random, box), randomY(random, box));
+            for (int i = 0; i < pathSegments; i++) {
+                if (random.nextBoolean()) {
+                    content.lineTo(randomX(random, box), randomY(random, box));
+                } else {
+                    content.addBezier312(randomX(random, box), randomY(random, box), randomX(random, box), randomY(random, box),
+                            randomX(random, box), randomY(random, box));
+                }
+            }
+            if (random.nextInt(4) == 0) {
+                content.closeSubPath();
+                content.fill(PathIterator.WIND_NON_ZERO);
+            } else {
+                content.stroke();
+            }
+            segments += pathSegments;
+        }
+    }
+
+    private void writeInlineImage(PDPageContentStream content, Random random, PDRectangle box) throws IOException {
+        float x = MARGIN + random.nextFloat() * (box.getWidth() - 2 * MARGIN - imageSize);
+        float y = MARGIN + random.nextFloat() * (box.getHeight() - 2 * MARGIN - imageSize);
+        StringBuilder image = new StringBuilder();
+        image.append("q\n").append(imageSize).append(" 0 0 ").append(imageSize).append(' ')
+                .append(format(x)).append(' ').append(format(y)).append(" cm\n")
+                .append("BI /W ").append(imageSize).append(" /H ").append(imageSize)
+                .append(" /CS /RGB /BPC 8 /F /AHx ID\n");
+        BufferedImage pixels = createPixels(random);
+        for (int row = 0; row < imageSize; row++) {
+            for (int column = 0; column < imageSize; column++) {
+                image.append(String.format(Locale.ROOT, "%06x", pixels.getRGB(column, row) & 0xFFFFFF));
+            }
+            image.append('\n');
+        }
+        image.append(">\nEI\nQ\n");
+        content.appendRawCommands(image.toString());
+    }
+
+    private List<PDXObjectImage> createImages(PDDocument document) throws IOException {
+        Random random = new Random(seed);
+        List<PDXObjectImage> images = new ArrayList<>(imagesPerPage);
+        for (int i = 0; i < imagesPerPage; i++) {
+            images.add(new PDPixelMap(document, createPixels(random)));
+        }
+        return images;
+    }
+
+    /**
+     * Gradient with noise, so the image compresses like a photo rather than
+     * like a flat color.
+     */
+    private BufferedImage createPixels(Random random) {
+        BufferedImage pixels = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_INT_RGB);
+        int red = random.nextInt(256);
+        int green = random.nextInt(256);
+        for (int row = 0; row < imageSize; row++) {
+            for (int column = 0; column < imageSize; column++) {
+                int blue = (column * 255 / imageSize + random.nextInt(32)) & 0xFF;
+                pixels.setRGB(column, row, red << 16 | ((green + row) & 0xFF) << 8 | blue);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * @return The outermost form of the chain, null without forms.
+     */
+    private PDXObjectForm createForms(PDDocument document) throws IOException {
+        PDXObjectForm inner = null;
+        for (int level = formDepth; level >= 1; level--) {
+            PDResources resources = new PDResources();
+            StringBuilder content = new StringBuilder();
+            content.append("q 0.5 w ").append(level * 10).append(' ').append(level * 10).append(" 100 20 re S Q\n");
+            if (inner == null) {
+                String font = resources.addFont(FONTS[0]);
+                content.append("BT /").append(font).append(" 8 Tf 40 40 Td (form ").append(level).append(") Tj ET\n");
+            } else {
+                String name = resources.addXObject(inner, "Fm");
+                content.append("q /").append(name).append(" Do Q\n");
+            }
+            PDStream stream = new PDStream(document);
+            try (OutputStream out = stream.createOutputStream()) {
+                out.write(content.toString().getBytes(StandardCharsets.US_ASCII));
+            }
+            PDXObjectForm form = new PDXObjectForm(stream);
+            form.setResources(resources);
+            form.setBBox(new PDRectangle(PDPage.PAGE_SIZE_LETTER.getWidth(), PDPage.PAGE_SIZE_LETTER.getHeight()));
+            inner = form;
+        }
+        return inner;
+    }
+
+    /**
+     * pdfbox derives the document id from the time, unless it is set.
+     */
+    private void setDocumentId(PDDocument document) {
+        String id = String.format(Locale.ROOT, "%016x", seed);
+        COSArray ids = new COSArray();
+        ids.add(new COSString(id));
+        ids.add(new COSString(id));
+        document.getDocument().getTrailer().setItem(COSName.ID, ids);
+    }
+
+    private long pageSeed(int page) {
+        return seed ^ (page + 1) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static String randomWord(Random random, int length) {
+        char[] word = new char[length];
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(16);
+            if (kind == 0) {
+                word[i] = (char) ('0' + random.nextInt(10));
+            } else if (kind == 1) {
+                word[i] = (char) ('A' + random.nextInt(26));
+            } else {
+                word[i] = (char) ('a' + random.nextInt(26));
+            }
+        }
+        return new String(word);
+    }
+
+    private static float randomX(Random random, PDRectangle box) {
+        return MARGIN + random.nextFloat() * (box.getWidth() - 2 * MARGIN);
+    }
+
+    private static float randomY(Random random, PDRectangle box) {
+        return MARGIN + random.nextFloat() * (box.getHeight() - 2 * MARGIN);
+    }
+
+    private static String format(float value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static int checkPositive(String name, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("The " + name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    private static int checkNotNegative(String name, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The " + name + " must not be negative: " + value);
+        }
+        return value;
+    }
+}
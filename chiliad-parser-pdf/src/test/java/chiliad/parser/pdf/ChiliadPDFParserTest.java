@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+import chiliad.parser.pdf.extractor.PageExtractor;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.extractor.vectorgraphics.SVGBasedExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.input.PDFSource;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.output.AsyncOutput;
+import chiliad.parser.pdf.output.EmptyOutput;
+import chiliad.parser.pdf.output.JSONOutput;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Test;
+
+public class ChiliadPDFParserTest {
+
+    @Test
+    public void testStreamExtractsTheSelectedPages() throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor());
+        parser.setPages(PageSet.of(3, 1));
+        try (Stream<MPage> pages = parser.stream()) {
+            List<Integer> pageNumbers = pages.map(MPage::getPageNumber).collect(Collectors.toList());
+            assertThat(pageNumbers, contains(1, 3));
+        }
+    }
+
+    @Test
+    public void testStartPageAfterEndPageSelectsNoPage() throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor());
+        parser.setStartPage(3);
+        parser.setEndPage(2);
+        try (Stream<MPage> pages = parser.stream()) {
+            assertThat(pages.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void testPublisherFollowsTheDemand() throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor());
+        parser.setPages(PageSet.all());
+        List<Integer> pageNumbers = new ArrayList<>();
+        List<String> signals = new ArrayList<>();
+        Flow.Subscriber<MPage> subscriber = new Flow.Subscriber<MPage>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                signals.add("subscribe");
+                subscription.request(2);
+            }
+
+            @Override
+            public void onNext(MPage page) {
+                pageNumbers.add(page.getPageNumber());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add("error");
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        };
+        try {
+            parser.publisher(Runnable::run).subscribe(subscriber);
+        } finally {
+            parser.shutDown();
+        }
+
+        assertThat(pageNumbers, contains(1, 2));
+        assertThat("Signals", signals, is(contains("subscribe")));
+    }
+
+    @Test
+    public void testPublisherShutsDownWhenCompleted() {
+        AtomicInteger shutDowns = new AtomicInteger();
+        List<String> signals = subscribe(Arrays.asList(page(1), page(2)).iterator(), shutDowns, 3, false);
+
+        assertThat("Signals", signals, contains("next 1", "next 2", "complete"));
+        assertThat("Shut downs", shutDowns.get(), is(1));
+    }
+
+    @Test
+    public void testPublisherShutsDownOnError() {
+        AtomicInteger shutDowns = new AtomicInteger();
+        Iterator<MPage> failing = new Iterator<MPage>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public MPage next() {
+                throw new IllegalStateException("Broken page");
+            }
+        };
+        List<String> signals = subscribe(failing, shutDowns, 1, false);
+
+        assertThat("Signals", signals, contains("error"));
+        assertThat("Shut downs", shutDowns.get(), is(1));
+    }
+
+    @Test
+    public void testPublisherShutsDownWhenCancelled() {
+        AtomicInteger shutDowns = new AtomicInteger();
+        List<String> signals = subscribe(Arrays.asList(page(1), page(2)).iterator(), shutDowns, 1, true);
+
+        assertThat("Signals", signals, contains("next 1"));
+        assertThat("Shut downs", shutDowns.get(), is(1));
+    }
+
+    @Test
+    public void testFailedParseAbortsTheOutput() throws Exception {
+        AtomicInteger aborts = new AtomicInteger();
+        AsyncOutput output = new AsyncOutput(new EmptyOutput() {
+            @Override
+            public void abort() {
+                aborts.incrementAndGet();
+            }
+        }, 2);
+        PDFSource broken = new PDFSource() {
+            @Override
+            public String getId() {
+                return "broken.pdf";
+            }
+
+            @Override
+            public PDDocument loadDocument() throws IOException {
+                throw new IOException("Broken document.");
+            }
+        };
+        try {
+            new ChiliadPDFParser(broken, output, new TextExtractor()).parse();
+            fail("The parsing of a broken document failed.");
+        } catch (RuntimeException ex) {
+            assertThat("Aborts", aborts.get(), is(1));
+        }
+    }
+
+    @Test
+    public void testOperatorBudgetTruncatesThePage() throws Exception {
+        MPage complete = extractFirstPage(-1);
+        MPage truncated = extractFirstPage(50);
+
+        assertThat(complete.getTruncation(), is(nullValue()));
+        assertThat(truncated.getTruncation(), is("operators"));
+        assertThat(truncated.getTokens().size(), is(greaterThan(0)));
+        assertThat(truncated.getTokens().size(), is(lessThan(complete.getTokens().size())));
+    }
+
+    @Test
+    public void testCancelSkipsTheRemainingPages() throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor());
+        parser.setPages(PageSet.all());
+        try {
+            Iterator<MPage> pages = parser.iterator();
+            assertThat(pages.next().getPageNumber(), is(1));
+            parser.cancel();
+            assertThat(pages.hasNext(), is(false));
+        } finally {
+            parser.shutDown();
+        }
+    }
+
+    @Test
+    public void testCancelledPageIsTruncated() throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor());
+        try {
+            Iterator<MPage> pages = parser.iterator();
+            parser.cancel();
+            MPage page = parser.extractPage(parser.getExtractors(), 1, parser.getPageIndex().getPage(1));
+            assertThat(page.getTruncation(), is("cancelled"));
+            assertThat(page.getTokens(), is(empty()));
+            assertThat(pages.hasNext(), is(false));
+        } finally {
+            parser.shutDown();
+        }
+    }
+
+    @Test
+    public void testParallelExtractionMatchesSequential() throws Exception {
+        String sequential = parseToJson(1);
+        String parallel = parseToJson(3);
+
+        assertThat(parallel, is(sequential));
+    }
+
+    private static String parseToJson(int workers) {
+        StringWriter json = new StringWriter();
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new JSONOutput(json), ChiliadPDFParserTest::newExtractors);
+        parser.setPages(PageSet.all());
+        parser.setWorkers(workers);
+        try {
+            parser.parse();
+        } finally {
+            parser.shutDown();
+        }
+        return json.toString();
+    }
+
+    /**
+     * Subscribes to a publisher of the pages on the calling thread, the
+     * subscription is cancelled after the first page when cancel is set.
+     *
+     * @return The received signals.
+     */
+    private static List<String> subscribe(Iterator<MPage> pages, AtomicInteger shutDowns, long request, boolean cancel) {
+        List<String> signals = new ArrayList<>();
+        new PagePublisher(() -> pages, Runnable::run, shutDowns::incrementAndGet).subscribe(new Flow.Subscriber<MPage>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(request);
+            }
+
+            @Override
+            public void onNext(MPage page) {
+                signals.add("next " + page.getPageNumber());
+                if (cancel) {
+                    subscription.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add("error");
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+        return signals;
+    }
+
+    private static MPage page(int pageNumber) {
+        return MPage.newInstance("test", pageNumber, 0d, 0d);
+    }
+
+    private static PageExtractor[] newExtractors() {
+        try {
+            return new PageExtractor[]{new TextExtractor(), new ImageExtractor(), new SVGBasedExtractor()};
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static MPage extractFirstPage(long maxOperators) throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor());
+        parser.setMaxOperators(maxOperators);
+        try {
+            return parser.iterator().next();
+        } finally {
+            parser.shutDown();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import java.util.List;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.Test;
+
+public class PageIndexTest {
+
+    @Test
+    public void testGetPageFollowsThePageTree() throws Exception {
+        try (PDDocument document = PDDocument.load(getClass().getResourceAsStream("/dell-test-pages.pdf"))) {
+            List<?> allPages = document.getDocumentCatalog().getAllPages();
+            PageIndex index = new PageIndex(document);
+
+            assertThat("Number of pages", index.getNumberOfPages(), is(allPages.size()));
+            for (int pageNumber = index.getNumberOfPages(); pageNumber > 0; pageNumber--) {
+                PDPage page = index.getPage(pageNumber);
+                assertThat("Page " + pageNumber, page.getCOSDictionary(), sameInstance(((PDPage) allPages.get(pageNumber - 1)).getCOSDictionary()));
+                assertThat("Page " + pageNumber + " is kept", index.getPage(pageNumber), sameInstance(page));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetPageOutOfTheDocument() throws Exception {
+        try (PDDocument document = PDDocument.load(getClass().getResourceAsStream("/dell-test-pages.pdf"))) {
+            new PageIndex(document).getPage(4);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class PageSetTest {
+
+    @Test
+    public void testParse() {
+        PageSet pages = PageSet.parse("1, 4-6,10-/5,last:3");
+        assertThat("Pages", pages.resolve(30), is(new int[]{1, 4, 5, 6, 10, 15, 20, 25, 28, 29, 30}));
+        assertThat("Text form", pages.toString(), is("1,4-6,10-/5,last:3"));
+    }
+
+    @Test
+    public void testResolveIgnoresPagesOutOfTheDocument() {
+        PageSet pages = PageSet.of(7, 2, 2).union(PageSet.range(3, 100)).union(PageSet.last(10));
+        assertThat("Pages", pages.resolve(4), is(new int[]{1, 2, 3, 4}));
+    }
+
+    @Test
+    public void testEveryNth() {
+        assertThat("Pages", PageSet.everyNth(3).resolve(10), is(new int[]{1, 4, 7, 10}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidTerm() {
+        PageSet.parse("1,x-3");
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf;
+
+import static org.junit.Assert.fail;
+import chiliad.parser.pdf.extractor.PageExtractor;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.extractor.vectorgraphics.SVGBasedExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.input.PDFSource;
+import chiliad.parser.pdf.input.StreamSource;
+import chiliad.parser.pdf.output.JSONOutput;
+import chiliad.parser.pdf.synthetic.SyntheticDocumentGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.apache.commons.io.output.NullWriter;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Regression gate of the parser performance. Every scenario parses a fixed
+ * document with a single worker into JSON and its peak heap and allocation
+ * per page are compared to performance-baseline.json, the test fails when
+ * any of them is out of the tolerance band of the baseline. The throughput
+ * depends on the machine, it is only gated with
+ * -Dchiliad.performance.throughput=true, on the machine of the baseline.
+ *
+ * The measured values are written to target/performance-results.json, the
+ * baseline is updated by copying that file over it.
+ */
+public class ParserPerformanceIT {
+
+    final static Logger LOG = LoggerFactory.getLogger(ParserPerformanceIT.class);
+
+    private static final String BASELINE = "performance-baseline.json";
+    private static final File RESULTS = new File("target/performance-results.json");
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private static final String PAGES_PER_SECOND = "pagesPerSecond";
+    private static final String PEAK_HEAP_BYTES = "peakHeapBytes";
+    private static final String ALLOCATED_BYTES_PER_PAGE = "allocatedBytesPerPage";
+    private static final boolean GATE_THROUGHPUT = Boolean.getBoolean("chiliad.performance.throughput");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static JsonNode baseline;
+    private static ObjectNode results;
+
+    @BeforeClass
+    public static void readBaseline() throws IOException {
+        try (InputStream in = ClassLoader.getSystemResourceAsStream(BASELINE)) {
+            baseline = MAPPER.readTree(in);
+        }
+        results = MAPPER.createObjectNode();
+        results.set("tolerance", baseline.get("tolerance"));
+        results.putObject("scenarios");
+    }
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        RESULTS.getParentFile().mkdirs();
+        MAPPER.writeValue(RESULTS, results);
+    }
+
+    @Test
+    public void testDellAllExtractors() throws Exception {
+        measure("dell-all-json", () -> new ClasspathSource("dell-test-pages.pdf"),
+                () -> new PageExtractor[]{new TextExtractor(), new ImageExtractor(), new SVGBasedExtractor()});
+    }
+
+    @Test
+    public void testSyntheticText() throws Exception {
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator();
+        generator.setSeed(23);
+        generator.setPages(40);
+        generator.setGlyphsPerPage(4000);
+        generator.setFonts(4);
+        byte[] document = generate(generator);
+        measure("synthetic-text-json", () -> new StreamSource("synthetic-text", document),
+                () -> new PageExtractor[]{new TextExtractor()});
+    }
+
+    /**
+     * Little content on many pages, so the fixed cost of a page, like that of
+     * the output, is a large part of it.
+     */
+    @Test
+    public void testSyntheticSparse() throws Exception {
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator();
+        generator.setSeed(23);
+        generator.setPages(200);
+        generator.setGlyphsPerPage(200);
+        byte[] document = generate(generator);
+        measure("synthetic-sparse-json", () -> new StreamSource("synthetic-sparse", document),
+                () -> new PageExtractor[]{new TextExtractor()});
+    }
+
+    @Test
+    public void testSyntheticMixed() throws Exception {
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator();
+        generator.setSeed(23);
+        generator.setPages(20);
+        generator.setGlyphsPerPage(1500);
+        generator.setFonts(2);
+        generator.setImagesPerPage(3);
+        generator.setImageSize(96);
+        generator.setPathSegmentsPerPage(400);
+        generator.setFormDepth(3);
+        generator.setInlineImagesPerPage(1);
+        byte[] document = generate(generator);
+        measure("synthetic-mixed-json", () -> new StreamSource("synthetic-mixed", document),
+                () -> new PageExtractor[]{new TextExtractor(), new ImageExtractor(), new SVGBasedExtractor()});
+    }
+
+    private static void measure(String scenario, Callable<PDFSource> source, Callable<PageExtractor[]> extractors) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            parse(source.call(), extractors.call());
+        }
+        long[] nanos = new long[MEASURED_RUNS];
+        long[] allocated = new long[MEASURED_RUNS];
+        long peakHeap = 0;
+        int pages = 0;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            System.gc();
+            resetPeakHeap();
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            pages = parse(source.call(), extractors.call());
+            nanos[i] = System.nanoTime() - start;
+            allocated[i] = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+            peakHeap = Math.max(peakHeap, getPeakHeap());
+        }
+        Map<String, Double> measured = new LinkedHashMap<>();
+        measured.put(PAGES_PER_SECOND, pages * 1e9 / median(nanos));
+        measured.put(PEAK_HEAP_BYTES, (double) peakHeap);
+        measured.put(ALLOCATED_BYTES_PER_PAGE, (double) median(allocated) / pages);
+        ObjectNode result = ((ObjectNode) results.get("scenarios")).putObject(scenario);
+        result.put(PAGES_PER_SECOND, Math.round(measured.get(PAGES_PER_SECOND) * 10) / 10.0);
+        result.put(PEAK_HEAP_BYTES, Math.round(measured.get(PEAK_HEAP_BYTES)));
+        result.put(ALLOCATED_BYTES_PER_PAGE, Math.round(measured.get(ALLOCATED_BYTES_PER_PAGE)));
+        LOG.info("{}: {}", scenario, measured);
+
+        JsonNode expected = baseline.path("scenarios").path(scenario);
+        if (expected.isMissingNode()) {
+            fail("No baseline of the scenario " + scenario + ", measured: " + measured);
+        }
+        List<String> regressions = new ArrayList<>();
+        double minThroughput = expected.get(PAGES_PER_SECOND).asDouble() * (1 - tolerance(scenario, PAGES_PER_SECOND));
+        if (GATE_THROUGHPUT && measured.get(PAGES_PER_SECOND) < minThroughput) {
+            regressions.add(String.format("%s %.1f < %.1f", PAGES_PER_SECOND, measured.get(PAGES_PER_SECOND), minThroughput));
+        }
+        for (String metric : Arrays.asList(PEAK_HEAP_BYTES, ALLOCATED_BYTES_PER_PAGE)) {
+            double max = expected.get(metric).asDouble() * (1 + tolerance(scenario, metric));
+            if (measured.get(metric) > max) {
+                regressions.add(String.format("%s %.0f > %.0f", metric, measured.get(metric), max));
+            }
+        }
+        if (!regressions.isEmpty()) {
+            fail("Performance regression of " + scenario + ": " + String.join(", ", regressions));
+        }
+    }
+
+    /**
+     * @return The tolerance of the scenario, or the default one, as the
+     * ratio of the baseline.
+     */
+    private static double tolerance(String scenario, String metric) {
+        JsonNode tolerance = baseline.path("scenarios").path(scenario).path("tolerance").path(metric);
+        if (tolerance.isMissingNode()) {
+            tolerance = baseline.path("tolerance").path(metric);
+        }
+        return tolerance.asDouble();
+    }
+
+    /**
+     * @return Number of the parsed pages.
+     */
+    private static int parse(PDFSource source, PageExtractor[] extractors) {
+        ChiliadPDFParser parser = new ChiliadPDFParser(source, new JSONOutput(new NullWriter(), true), extractors);
+        parser.setPages(PageSet.all());
+        try {
+            parser.parse();
+            return parser.getPageIndex().getNumberOfPages();
+        } finally {
+            parser.shutDown();
+        }
+    }
+
+    private static byte[] generate(SyntheticDocumentGenerator generator) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.generate(out);
+        return out.toByteArray();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return Sum of the peaks of the heap pools, an upper bound of the peak
+     * of the whole heap.
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.input.StreamSource;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.output.EmptyOutput;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PageCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLeastRecentlyUsedPageIsEvicted() throws Exception {
+        File directory = folder.newFolder("cache");
+        PageCache cache = new PageCache(directory, Long.MAX_VALUE);
+        cache.put("doc", "text", MPage.newInstance("a.pdf", 1, 612d, 792d));
+        long pageSize = cache.getSize();
+        cache = new PageCache(directory, 2 * pageSize);
+        cache.put("doc", "text", MPage.newInstance("a.pdf", 2, 612d, 792d));
+        assertThat(cache.get("doc", "text", 1).getPageNumber(), is(1));
+        cache.put("doc", "text", MPage.newInstance("a.pdf", 3, 612d, 792d));
+
+        assertThat("Evicted", cache.get("doc", "text", 2), is(nullValue()));
+        assertThat(cache.get("doc", "text", 1).getPageNumber(), is(1));
+        assertThat(cache.get("doc", "text", 3).getPageNumber(), is(3));
+        assertThat("Other fingerprint", cache.get("doc", "image", 3), is(nullValue()));
+        assertThat(cache.getHits(), is(3L));
+        assertThat(cache.getMisses(), is(2L));
+        assertThat(cache.getSize(), is(2 * pageSize));
+        assertThat(directory.list().length, is(2));
+    }
+
+    @Test
+    public void testCachedDocumentIsNotLoaded() throws Exception {
+        byte[] pdf = IOUtils.toByteArray(getClass().getResourceAsStream("/dell-test-pages.pdf"));
+        PageCache cache = new PageCache(folder.newFolder("cache"), Long.MAX_VALUE);
+        RecordingOutput first = new RecordingOutput();
+        parse(new StreamSource("first.pdf", pdf), first, cache);
+        assertThat(cache.getMisses(), is(3L));
+
+        RecordingOutput second = new RecordingOutput();
+        parse(new StreamSource("second.pdf", pdf) {
+            @Override
+            public synchronized PDDocument loadDocument() {
+                throw new AssertionError("The document is loaded.");
+            }
+        }, second, cache);
+
+        assertThat(cache.getHits(), is(3L));
+        assertThat(second.pages.size(), is(3));
+        assertThat(second.pages.get(2).getTokens().size(), is(first.pages.get(2).getTokens().size()));
+        assertThat(second.pages.get(2).getSourceId(), is("second.pdf"));
+    }
+
+    private static void parse(StreamSource source, RecordingOutput output, PageCache cache) throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(source, output, new TextExtractor());
+        parser.setPages(PageSet.all());
+        parser.setPageCache(cache);
+        parser.parse();
+        parser.shutDown();
+    }
+
+    private static class RecordingOutput extends EmptyOutput {
+
+        private final List<MPage> pages = new ArrayList<>();
+
+        @Override
+        public void processPageContent(MPage page) {
+            pages.add(page);
+        }
+    }
+}
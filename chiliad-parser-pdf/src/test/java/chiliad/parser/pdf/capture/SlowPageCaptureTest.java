@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.capture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.input.FileSource;
+import chiliad.parser.pdf.input.PDFSource;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.output.EmptyOutput;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SlowPageCaptureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCapturedPageIsStandalone() throws Exception {
+        File directory = folder.newFolder("slow");
+        SlowPageCapture capture = new SlowPageCapture(directory, Long.MAX_VALUE, 0, SlowPageCapture.UNLIMITED);
+
+        MPage original = extract(new ClasspathSource("dell-test-pages.pdf"), PageSet.of(2), capture).get(0);
+
+        assertThat(capture.getCaptured(), is(1));
+        File pdf = new File(directory, "dell-test-pages-" + String.format("%08x", "dell-test-pages.pdf".hashCode()) + "-page-2.pdf");
+        try (PDDocument document = PDDocument.load(pdf)) {
+            assertThat(document.getNumberOfPages(), is(1));
+        }
+        MPage reproduced = extract(new FileSource(pdf), PageSet.all(), null).get(0);
+        assertThat(reproduced.getTokens().size(), is(original.getTokens().size()));
+
+        JsonNode sidecar = new ObjectMapper().readTree(new File(directory, pdf.getName().replace(".pdf", ".json")));
+        assertThat(sidecar.get("pageNumber").asInt(), is(2));
+        assertThat(sidecar.get("extractMillis").asDouble(), is(greaterThan(0d)));
+        assertThat(sidecar.get("extractorMillis").has("TextExtractor"), is(true));
+        assertThat(sidecar.get("settings").get("extractors").asText(), containsString("TextExtractor"));
+        assertThat(sidecar.has("allocatedBytes"), is(false));
+    }
+
+    @Test
+    public void testFastPagesAreNotCaptured() throws Exception {
+        File directory = folder.newFolder("slow");
+        SlowPageCapture capture = new SlowPageCapture(directory, Long.MAX_VALUE, 60_000, SlowPageCapture.UNLIMITED);
+
+        extract(new ClasspathSource("dell-test-pages.pdf"), PageSet.of(1), capture);
+
+        assertThat(capture.getCaptured(), is(0));
+        assertThat(directory.list().length, is(0));
+    }
+
+    @Test
+    public void testQuota() throws Exception {
+        File directory = folder.newFolder("slow");
+        SlowPageCapture capture = new SlowPageCapture(directory, 1024, SlowPageCapture.UNLIMITED, 0);
+
+        extract(new ClasspathSource("dell-test-pages.pdf"), PageSet.all(), capture);
+
+        assertThat(capture.getCaptured(), is(0));
+        assertThat(capture.getSize(), is(0L));
+        assertThat(directory.list().length, is(0));
+    }
+
+    private static List<MPage> extract(PDFSource source, PageSet pages, SlowPageCapture capture) throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(source, new EmptyOutput(), new TextExtractor());
+        parser.setPages(pages);
+        parser.setSlowPageCapture(capture);
+        try {
+            return parser.stream().collect(Collectors.toList());
+        } finally {
+            parser.shutDown();
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package chiliad.parser.pdf.cli;
 
+import chiliad.parser.pdf.extractor.FusedExtractor;
+import chiliad.parser.pdf.extractor.PageExtractor;
+import chiliad.parser.pdf.input.DocumentLoader;
 import chiliad.parser.pdf.output.JSONOutput;
 import java.io.File;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 
 public class ParserCliTest {
@@ -62,6 +66,37 @@ public class ParserCliTest {
         assertThat("Get end page", parser.getEndPage(), is(endPage));
     }
 
+    @Test
+    public void testGetPages() {
+        ParserCli parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf", "-pages", "2,5-,last:1"});
+        assertThat("Get pages", parser.getPages().resolve(8), is(new int[]{2, 5, 6, 7, 8}));
+
+        parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf", "-startPage", "2", "-endPage", "3"});
+        assertThat("Get pages of start and end page", parser.getPages().resolve(8), is(new int[]{2, 3}));
+    }
+
+    @Test(expected = ParserCliException.class)
+    public void testGetPagesOfAnEmptyRange() {
+        ParserCli parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf", "-startPage", "5", "-endPage", "3"});
+        parser.getPages();
+    }
+
+    @Test
+    public void testGetDocumentLoader() {
+        ParserCli parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf", "-memoryBudget", "64", "-scratchDir", "fooScratch"});
+        DocumentLoader loader = parser.getDocumentLoader();
+        assertThat("Memory budget", loader.getMemoryBudget(), is(64L * 1024 * 1024));
+        assertThat("Scratch directory", loader.getScratchDirectory().getName(), is("fooScratch"));
+
+        parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf"});
+        assertThat("In memory by default", parser.getDocumentLoader().isInMemory(), is(true));
+    }
+
     @Test
     public void testGetOutputDefaultValue() throws Exception {
         ParserCli parser = new ParserCli();
@@ -69,4 +104,44 @@ public class ParserCliTest {
         assertThat("Output format", parser.getOutputFormat(), instanceOf(JSONOutput.class));
     }
 
+    @Test
+    public void testInvalidOutputQueueCreatesNoOutputFile() {
+        for (String queue : new String[]{"0", "x"}) {
+            ParserCli parser = new ParserCli();
+            parser.parse(new String[]{"-pdfFile", "queue.pdf", "-outputQueue", queue});
+            try {
+                parser.getOutputFormat();
+                fail("Invalid output queue accepted: " + queue);
+            } catch (ParserCliException ex) {
+                assertThat("Output file of the output queue " + queue, new File("queue_pages_1_1.json").exists(), is(false));
+            }
+        }
+    }
+
+    @Test
+    public void testGetWorkers() {
+        ParserCli parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf", "-workers", "4", "-unordered"});
+        assertThat("Get workers", parser.getWorkers(), is(4));
+        assertThat("Unordered option is present.", parser.isUnordered(), is(true));
+    }
+
+    @Test
+    public void testGetWorkersDefaultValue() {
+        ParserCli parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf"});
+        assertThat("Get workers", parser.getWorkers(), is(1));
+        assertThat("Unordered option is not present.", parser.isUnordered(), is(false));
+    }
+
+    @Test
+    public void testGetExtractorsSinglePass() {
+        ParserCli parser = new ParserCli();
+        parser.parse(new String[]{"-pdfFile", "foo.pdf", "-extractors", "text,image", "-singlePass"});
+        PageExtractor[] pageExtractors = parser.getExtractors();
+        assertThat("Number of extractors", pageExtractors.length, is(1));
+        assertThat("Fused extractor", pageExtractors[0], instanceOf(FusedExtractor.class));
+        assertThat("Number of fused extractors", ((FusedExtractor) pageExtractors[0]).getMembers().size(), is(2));
+    }
+
 }
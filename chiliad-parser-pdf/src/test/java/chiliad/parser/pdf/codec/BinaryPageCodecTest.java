@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.codec;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import chiliad.parser.pdf.output.EmptyOutput;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class BinaryPageCodecTest {
+
+    @Test
+    public void testExtractedPagesAreReadBackUnchanged() throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor(), new ImageExtractor());
+        parser.setPages(PageSet.all());
+        List<MPage> pages;
+        try (Stream<MPage> stream = parser.stream()) {
+            pages = stream.collect(Collectors.toList());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryPageWriter writer = new BinaryPageWriter(bytes)) {
+            for (MPage page : pages) {
+                writer.write(page);
+            }
+        }
+        List<MPage> read;
+        try (BinaryPageReader reader = new BinaryPageReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = reader.readAll();
+            assertThat("Read after the end", reader.read(), is(nullValue()));
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode expected = mapper.valueToTree(pages);
+        assertThat(mapper.valueToTree(read), is(expected));
+        assertThat("Smaller than the JSON", bytes.size(), lessThan(mapper.writeValueAsBytes(pages).length * 3 / 4));
+    }
+
+    @Test
+    public void testNullsAndDoublesAreKept() throws Exception {
+        MPage page = MPage.newInstance(null, null, 0.1d, null);
+        MToken token = new MToken();
+        token.setX(Math.PI);
+        token.setY(Double.NaN);
+        page.add(token);
+        page.add(new MToken());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryPageWriter writer = new BinaryPageWriter(bytes)) {
+            writer.write(page);
+        }
+        MPage read = new BinaryPageReader(new ByteArrayInputStream(bytes.toByteArray())).read();
+
+        assertThat(read.getSourceId(), is(nullValue()));
+        assertThat(read.getPageNumber(), is(nullValue()));
+        assertThat(read.getWidth(), is(0.1d));
+        assertThat(read.getHeight(), is(nullValue()));
+        assertThat(read.getVectorGraphics(), is(nullValue()));
+        assertThat(read.getTokens().get(0).getX(), is(Math.PI));
+        assertThat(read.getTokens().get(0).getY().isNaN(), is(true));
+        assertThat(read.getTokens().get(0).getStrokingArgb(), is(nullValue()));
+        assertThat(read.getTokens().get(1).getText(), is(nullValue()));
+        assertThat(read.getTokens().get(1).getX(), is(nullValue()));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryPageWriter writer = new BinaryPageWriter(bytes)) {
+            writer.write(MPage.newInstance("test.pdf", 1, 612d, 792d));
+        }
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+        new BinaryPageReader(new ByteArrayInputStream(truncated)).readAll();
+    }
+}
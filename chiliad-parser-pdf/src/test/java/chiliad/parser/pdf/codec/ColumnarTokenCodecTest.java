@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.codec;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColumnarTokenCodecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testColumnsAreReadBack() throws Exception {
+        MPage first = MPage.newInstance("test.pdf", 1, 612d, 792d);
+        first.add(token("Hello", 10d, "Helvetica", 0xFF000000));
+        first.add(token("world", 40d, "Helvetica", 0xFFFF0000));
+        MPage second = MPage.newInstance("test.pdf", 2, 612d, 792d);
+        second.add(token("Hello", 72.5d, null, 0xFF000000));
+        second.add(new MToken());
+
+        File file = folder.newFile("tokens.ccol");
+        try (ColumnarTokenWriter writer = new ColumnarTokenWriter(new FileOutputStream(file))) {
+            writer.write(first);
+            writer.write(second);
+        }
+        ColumnarTokenReader reader = new ColumnarTokenReader(file);
+
+        assertThat(reader.getBatchCount(), is(2));
+        assertThat(reader.getPageNumber(1), is(2));
+        assertThat(reader.getRowCount(1), is(2));
+        FloatBuffer xs = reader.getFloatColumn(1, "x");
+        assertThat(xs.get(0), is(72.5f));
+        assertThat(Float.isNaN(xs.get(1)), is(true));
+        IntBuffer texts = reader.getIndexColumn(1, "text");
+        assertThat("Shared dictionary entry", texts.get(0), is(reader.getIndexColumn(0, "text").get(0)));
+        assertThat(reader.getString("text", texts.get(0)), is("Hello"));
+        assertThat(reader.getString("text", texts.get(1)), is(nullValue()));
+        assertThat(reader.getString("font", reader.getIndexColumn(0, "fontName").get(1)), is("Helvetica"));
+        assertThat(reader.getColor(reader.getIndexColumn(0, "strokingColor").get(1)), is(0xFFFF0000));
+        assertThat(reader.getColor(reader.getIndexColumn(1, "strokingColor").get(1)), is(nullValue()));
+    }
+
+    private static MToken token(String text, double x, String fontName, int argb) {
+        MToken token = new MToken();
+        token.setText(text);
+        token.setX(x);
+        token.setFontName(fontName);
+        token.setStrokingArgb(argb);
+        return token;
+    }
+}
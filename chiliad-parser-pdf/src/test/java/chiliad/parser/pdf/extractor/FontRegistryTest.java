@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import java.util.Map;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Test;
+
+public class FontRegistryTest {
+
+    @Test
+    public void testFontsAreSharedBetweenResources() {
+        COSDictionary font = (COSDictionary) PDType1Font.HELVETICA.getCOSObject();
+        FontRegistry registry = new FontRegistry();
+
+        Map<String, PDFont> firstPageFonts = registry.getFonts(resources("F1", font));
+        Map<String, PDFont> secondPageFonts = registry.getFonts(resources("F7", font));
+
+        assertThat("Same font on both pages", secondPageFonts.get("F7"), sameInstance(firstPageFonts.get("F1")));
+        assertThat("Registered fonts", registry.size(), is(1));
+        assertThat("Font id", registry.getId(firstPageFonts.get("F1")), is(0));
+    }
+
+    @Test
+    public void testUnknownFontIsRegistered() {
+        FontRegistry registry = new FontRegistry();
+
+        int helvetica = registry.getId(PDType1Font.HELVETICA);
+        int courier = registry.getId(PDType1Font.COURIER);
+
+        assertThat("Helvetica id", registry.getId(PDType1Font.HELVETICA), is(helvetica));
+        assertThat("Courier", registry.getFont(courier), sameInstance((PDFont) PDType1Font.COURIER));
+        assertThat("Registered fonts", registry.size(), is(2));
+    }
+
+    private static PDResources resources(String fontName, COSDictionary font) {
+        COSDictionary fonts = new COSDictionary();
+        fonts.setItem(COSName.getPDFName(fontName), font);
+        COSDictionary resources = new COSDictionary();
+        resources.setItem(COSName.FONT, fonts);
+        return new PDResources(resources);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.extractor.vectorgraphics.SVGBasedExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.output.JSONOutput;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class FusedExtractorTest {
+
+    @Test
+    public void testSinglePassMatchesSeparatePasses() throws Exception {
+        String separate = parseToJson(new TextExtractor(), new ImageExtractor(), new SVGBasedExtractor());
+        String fused = parseToJson(new FusedExtractor(new TextExtractor(), new ImageExtractor(), new SVGBasedExtractor()));
+
+        assertThat(fused, is(separate));
+    }
+
+    private static String parseToJson(PageExtractor... extractors) {
+        StringWriter json = new StringWriter();
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new JSONOutput(json), extractors);
+        parser.setPages(PageSet.all());
+        try {
+            parser.parse();
+        } finally {
+            parser.shutDown();
+        }
+        return json.toString();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor.text;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import org.junit.Test;
+
+public class LineBucketingTest {
+
+    @Test
+    public void testBucketOrdersLinesByYAndGlyphsByX() {
+        LineBucketing bucketing = new LineBucketing();
+        float[] ys = {20f, 10f, 20f, 10f, -5f};
+        float[] xs = {7f, 3f, 1f, -2f, 4f};
+        bucketing.bucket(ys, xs, ys.length);
+
+        assertThat("Number of lines", bucketing.getLineCount(), is(3));
+        assertThat("Glyphs of the lines", glyphs(bucketing), is("4|3,1|2,0|"));
+    }
+
+    @Test
+    public void testBucketKeepsTheOrderOfGlyphsAtTheSamePosition() {
+        LineBucketing bucketing = new LineBucketing();
+        float[] ys = {10f, 10f, 10f, 10f};
+        float[] xs = {5f, 1f, 5f, 5f};
+        bucketing.bucket(ys, xs, ys.length);
+
+        assertThat("Glyphs of the lines", glyphs(bucketing), is("1,0,2,3|"));
+    }
+
+    @Test
+    public void testBucketWithYTolerance() {
+        LineBucketing bucketing = new LineBucketing();
+        float[] ys = {10.2f, 10f, 10.4f, 12f};
+        float[] xs = {2f, 1f, 3f, 1f};
+
+        bucketing.bucket(ys, xs, ys.length);
+        assertThat("Number of lines without tolerance", bucketing.getLineCount(), is(4));
+
+        bucketing.setYTolerance(0.5f);
+        bucketing.bucket(ys, xs, ys.length);
+        assertThat("Glyphs of the lines", glyphs(bucketing), is("1,0,2|3|"));
+    }
+
+    @Test
+    public void testSortableBitsOrderAsFloatCompare() {
+        float[] values = {Float.NEGATIVE_INFINITY, -3.5f, -0f, 0f, Float.MIN_VALUE, 2f, Float.POSITIVE_INFINITY, Float.NaN};
+        for (int i = 1; i < values.length; i++) {
+            assertThat("Order of " + values[i - 1] + " and " + values[i],
+                    Integer.compare(LineBucketing.sortableBits(values[i - 1]), LineBucketing.sortableBits(values[i])),
+                    is(Float.compare(values[i - 1], values[i])));
+        }
+    }
+
+    private String glyphs(LineBucketing bucketing) {
+        StringBuilder sb = new StringBuilder();
+        for (int line = 0; line < bucketing.getLineCount(); line++) {
+            for (int i = bucketing.getLineStart(line); i < bucketing.getLineEnd(line); i++) {
+                if (i > bucketing.getLineStart(line)) {
+                    sb.append(',');
+                }
+                sb.append(bucketing.getGlyphIndex(i));
+            }
+            sb.append('|');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.extractor.text;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.TextPosition;
+import org.junit.Test;
+
+public class TokenTest {
+
+    private static final float GLYPH_WIDTH = 5;
+    private static final float FONT_SIZE = 10;
+    private static final float PAGE_HEIGHT = 792;
+    private static final PDPage PAGE = new PDPage(new PDRectangle(612, PAGE_HEIGHT));
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void testAcceptAdjacentGlyphs() {
+        GlyphBuffer glyphs = new GlyphBuffer();
+        Token token = new Token(glyphs, add(glyphs, 36, 100, 'a', FONT_SIZE));
+
+        assertThat("Adjacent glyph accepted", token.accept(add(glyphs, 41, 100, 'b', FONT_SIZE)), is(true));
+        assertThat("Glyph within the gap tolerance accepted", token.accept(add(glyphs, 49, 100, 'c', FONT_SIZE)), is(true));
+
+        assertThat("Text", token.getText(), is("abc"));
+        assertThat("Number of characters", token.numberOfCharacters(), is(3));
+        assertThat("Width", token.getWidth(), closeTo(3 * GLYPH_WIDTH, DELTA));
+        assertThat("Height", token.getHeight(), closeTo(FONT_SIZE, DELTA));
+        assertThat("Start x", token.getPositionStartX(), closeTo(36, DELTA));
+        assertThat("Start y, from the top of the page", token.getPositionStartY(), closeTo(PAGE_HEIGHT - 100, DELTA));
+        assertThat("End x", token.getPositionEndX(), closeTo(36 + GLYPH_WIDTH, DELTA));
+    }
+
+    @Test
+    public void testRejectNonAdjacentGlyphs() {
+        GlyphBuffer glyphs = new GlyphBuffer();
+        Token token = new Token(glyphs, add(glyphs, 36, 100, 'a', FONT_SIZE));
+
+        assertThat("Distant glyph rejected", token.accept(add(glyphs, 60, 100, 'b', FONT_SIZE)), is(false));
+        assertThat("Preceding glyph rejected", token.accept(add(glyphs, 20, 100, 'c', FONT_SIZE)), is(false));
+        assertThat("Glyph of another font size rejected", token.accept(add(glyphs, 41, 100, 'd', 12)), is(false));
+
+        assertThat("Text", token.getText(), is("a"));
+        assertThat("Width", token.getWidth(), closeTo(GLYPH_WIDTH, DELTA));
+        assertThat("End x", token.getPositionEndX(), closeTo(36 + GLYPH_WIDTH, DELTA));
+    }
+
+    private static int add(GlyphBuffer glyphs, float x, float y, char c, float fontSize) {
+        TextPosition tp = new TextPosition(PAGE, Matrix.getTranslatingInstance(x, y), Matrix.getTranslatingInstance(x + GLYPH_WIDTH, y),
+                FONT_SIZE, new float[]{GLYPH_WIDTH}, GLYPH_WIDTH, String.valueOf(c), PDType1Font.HELVETICA, fontSize, (int) fontSize, 0);
+        return glyphs.add(tp, 0, 0);
+    }
+}
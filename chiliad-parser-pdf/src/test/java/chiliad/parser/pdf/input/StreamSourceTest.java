@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.input;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import java.io.File;
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamSourceTest {
+
+    @Rule
+    public TemporaryFolder scratch = new TemporaryFolder();
+
+    @Test
+    public void testLoadWithScratchFileSeveralTimes() throws Exception {
+        DocumentLoader loader = new DocumentLoader(0, scratch.getRoot());
+        try (InputStream pdf = getClass().getResourceAsStream("/dell-test-pages.pdf");
+                StreamSource source = new StreamSource("dell", pdf, loader)) {
+            for (int i = 0; i < 2; i++) {
+                try (PDDocument document = source.loadDocument()) {
+                    assertThat("Number of pages", document.getNumberOfPages(), is(3));
+                }
+            }
+        }
+        assertThat("Spool and scratch files are deleted", scratch.getRoot().listFiles(), is(new File[0]));
+    }
+
+    @Test
+    public void testLoadBytesInMemory() throws Exception {
+        byte[] bytes = IOUtils.toByteArray(getClass().getResourceAsStream("/dell-test-pages.pdf"));
+        try (StreamSource source = new StreamSource("dell", bytes)) {
+            try (PDDocument document = source.loadDocument()) {
+                assertThat("Number of pages", document.getNumberOfPages(), is(3));
+            }
+        }
+        assertThat("Nothing is spooled", scratch.getRoot().listFiles(), is(new File[0]));
+    }
+}
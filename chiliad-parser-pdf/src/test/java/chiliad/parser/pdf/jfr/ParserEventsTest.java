@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.jfr;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.output.EmptyOutput;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class ParserEventsTest {
+
+    @Test
+    public void testParserEmitsTheEvents() throws Exception {
+        Path dump = Files.createTempFile("chiliad", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(DocumentLoadEvent.class);
+            recording.enable(PageExtractEvent.class);
+            recording.enable(OutputWriteEvent.class);
+            recording.start();
+
+            ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(),
+                    new TextExtractor(), new ImageExtractor());
+            parser.setPages(PageSet.of(1, 2));
+            parser.parse();
+            parser.shutDown();
+
+            recording.stop();
+            recording.dump(dump);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+            assertThat(count(events, "chiliad.DocumentLoad"), is(1L));
+            assertThat(count(events, "chiliad.OutputWrite"), is(2L));
+            List<String> pageExtracts = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("chiliad.PageExtract"))
+                    .map(e -> e.getInt("pageNumber") + ":" + e.getString("extractor"))
+                    .collect(Collectors.toList());
+            assertThat(pageExtracts, containsInAnyOrder("1:TextExtractor", "1:ImageExtractor", "2:TextExtractor", "2:ImageExtractor"));
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).count();
+    }
+}
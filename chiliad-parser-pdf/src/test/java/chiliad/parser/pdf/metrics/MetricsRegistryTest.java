@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
+import chiliad.parser.pdf.output.EmptyOutput;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.StringWriter;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testHistogramPercentilesWithinTheBucketError() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getCount(), is(1000L));
+        assertThat(histogram.getSum(), is(500500L));
+        assertThat(histogram.getMax(), is(1000L));
+        assertThat(histogram.getValueAtPercentile(50), is(allOf(greaterThanOrEqualTo(500L), lessThanOrEqualTo(500L * 9 / 8))));
+        assertThat(histogram.getValueAtPercentile(99), is(allOf(greaterThanOrEqualTo(990L), lessThanOrEqualTo(1000L))));
+        assertThat(histogram.getValueAtPercentile(0), is(1L));
+    }
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 7, 8, 15, 16, 1000, 1L << 40, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucketOf(value);
+            assertThat(Histogram.lowerBoundOf(bucket), is(lessThanOrEqualTo(value)));
+            assertThat(Histogram.upperBoundOf(bucket), is(greaterThanOrEqualTo(value)));
+        }
+    }
+
+    @Test
+    public void testConcurrentCounting() {
+        MetricsRegistry registry = new MetricsRegistry();
+        IntStream.range(0, 10000).parallel().forEach(i -> {
+            registry.count("calls", 1);
+            registry.record("values", i % 10);
+        });
+
+        assertThat(registry.getCounter("calls"), is(10000L));
+        assertThat(registry.getHistogram("values").getCount(), is(10000L));
+        assertThat(registry.getHistogram("values").getSum(), is(45000L));
+    }
+
+    @Test
+    public void testParserMeasurements() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new EmptyOutput(), new TextExtractor());
+        parser.setPages(PageSet.of(1, 2));
+        parser.setMetrics(registry);
+        parser.parse();
+        parser.shutDown();
+
+        assertThat(registry.getCounter("pages.extracted"), is(2L));
+        assertThat(registry.getTimer("document.load").getCount(), is(1L));
+        assertThat(registry.getTimer("extractor.TextExtractor").getCount(), is(2L));
+        assertThat(registry.getTimer("output.write").getCount(), is(2L));
+        assertThat(registry.getHistogram("text.glyphs").getSum(), is(greaterThan(registry.getHistogram("text.tokens").getSum())));
+
+        StringWriter json = new StringWriter();
+        registry.writeJson(json);
+        JsonNode tokens = new ObjectMapper().readTree(json.toString()).path("values").path("text.tokens");
+        assertThat(tokens.get("count"), is(notNullValue()));
+        assertThat(tokens.get("count").asLong(), is(2L));
+    }
+}
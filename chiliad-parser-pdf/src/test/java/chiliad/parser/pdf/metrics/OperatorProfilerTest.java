@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.FusedExtractor;
+import chiliad.parser.pdf.extractor.PageExtractor;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.input.StreamSource;
+import chiliad.parser.pdf.metrics.OperatorProfiler.OperatorStats;
+import chiliad.parser.pdf.output.EmptyOutput;
+import chiliad.parser.pdf.synthetic.SyntheticDocumentGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class OperatorProfilerTest {
+
+    @Test
+    public void testNestedOperators() throws Exception {
+        OperatorProfiler profiler = profile(new TextExtractor());
+
+        OperatorStats doStats = profiler.getStats("Do");
+        OperatorStats tjStats = profiler.getStats("Tj");
+        assertThat(doStats.getCount(), is(6L));
+        assertThat(doStats.getMaxDepth(), is(2));
+        assertThat(doStats.getSelfNanos(), is(lessThan(doStats.getNanos())));
+        assertThat(tjStats.getMaxDepth(), is(3));
+        assertThat(tjStats.getSelfNanos(), is(tjStats.getNanos()));
+        assertThat(tjStats.getMaxNanos(), is(lessThanOrEqualTo(tjStats.getNanos())));
+    }
+
+    @Test
+    public void testFusedExtractorIsProfiledOnce() throws Exception {
+        OperatorProfiler separate = profile(new TextExtractor(), new ImageExtractor());
+        OperatorProfiler fused = profile(new FusedExtractor(new TextExtractor(), new ImageExtractor()));
+
+        assertThat(separate.getStats("Do").getCount(), is(12L));
+        assertThat(fused.getStats("Do").getCount(), is(6L));
+        assertThat(fused.getStats("Do").getMaxDepth(), is(2));
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        OperatorProfiler profiler = profile(new TextExtractor());
+        StringWriter report = new StringWriter();
+
+        profiler.writeReport(report, "Operator hotspots of synthetic.pdf");
+
+        String[] lines = report.toString().split("\\R");
+        assertThat(lines[0], is("Operator hotspots of synthetic.pdf"));
+        assertThat(lines[1], startsWith("operator"));
+        assertThat(lines.length, is(2 + profiler.getHotspots().size()));
+        assertThat(report.toString(), containsString("Do "));
+    }
+
+    private static OperatorProfiler profile(PageExtractor... extractors) throws Exception {
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator();
+        generator.setPages(2);
+        generator.setGlyphsPerPage(100);
+        generator.setFormDepth(3);
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        generator.generate(document);
+
+        OperatorProfiler profiler = new OperatorProfiler();
+        ChiliadPDFParser parser = new ChiliadPDFParser(new StreamSource("synthetic", document.toByteArray()), new EmptyOutput(), extractors);
+        parser.setPages(PageSet.all());
+        parser.setOperatorProfiler(profiler);
+        try {
+            parser.parse();
+        } finally {
+            parser.shutDown();
+        }
+        return profiler;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import java.awt.Color;
+import org.junit.Test;
+
+public class MTokenTest {
+
+    @Test
+    public void testColorToRgbaKeepsTheAlpha() {
+        assertThat("Opaque", MToken.colorToRgba(new Color(255, 0, 0)), is("rgba(255,0,0,1)"));
+        assertThat("Transparent", MToken.colorToRgba(new Color(0, 0, 255, 0)), is("rgba(0,0,255,0)"));
+        assertThat("Half transparent", MToken.colorToRgba(new Color(10, 20, 30, 128)), is("rgba(10,20,30,0.502)"));
+        assertThat("Thirty percent", MToken.colorToRgba(new Color(255, 0, 0, 51)), is("rgba(255,0,0,0.2)"));
+    }
+
+    @Test
+    public void testRgbaRoundTrip() {
+        MToken token = new MToken();
+        token.setStrokingColor("rgba(10,20,30,0.502)");
+
+        assertThat("ARGB", token.getStrokingArgb(), is(new Color(10, 20, 30, 128).getRGB()));
+        assertThat("RGBA", token.getStrokingColor(), is("rgba(10,20,30,0.502)"));
+    }
+}
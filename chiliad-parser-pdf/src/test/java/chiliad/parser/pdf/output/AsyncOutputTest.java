@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import chiliad.parser.pdf.model.MPage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AsyncOutputTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSpilledPagesAreWrittenInOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingOutput recording = new RecordingOutput(release);
+        AsyncOutput output = new AsyncOutput(recording, 1, AsyncOutput.Backpressure.SPILL, folder.getRoot());
+        output.startDocument(null);
+        for (int pageNumber = 1; pageNumber <= 4; pageNumber++) {
+            output.startPage(null);
+            output.processPageContent(MPage.newInstance("test.pdf", pageNumber, 612d, 792d));
+            output.endPage(null);
+        }
+        release.countDown();
+        output.endDocument(null);
+
+        assertThat(recording.calls, contains("startDocument",
+                "startPage", "page 1", "endPage",
+                "startPage", "page 2", "endPage",
+                "startPage", "page 3", "endPage",
+                "startPage", "page 4", "endPage",
+                "endDocument"));
+        assertThat("Spill files are deleted", folder.getRoot().list(), is(emptyArray()));
+    }
+
+    @Test(timeout = 10000)
+    public void testAbortWritesTheQueuedCallsAndEndsTheThread() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingOutput recording = new RecordingOutput(release);
+        AsyncOutput output = new AsyncOutput(recording, 1, AsyncOutput.Backpressure.SPILL, folder.getRoot());
+        output.startDocument(null);
+        for (int pageNumber = 1; pageNumber <= 3; pageNumber++) {
+            output.processPageContent(MPage.newInstance("test.pdf", pageNumber, 612d, 792d));
+        }
+        release.countDown();
+        output.abort();
+
+        assertThat(recording.calls, contains("startDocument", "page 1", "page 2", "page 3", "abort"));
+        assertThat("Spill files are deleted", folder.getRoot().list(), is(emptyArray()));
+    }
+
+    @Test(expected = ParserOutputException.class)
+    public void testFailureIsThrownByEndDocument() {
+        AsyncOutput output = new AsyncOutput(new EmptyOutput() {
+            @Override
+            public void processPageContent(MPage page) {
+                throw new ParserOutputException("Disk full.", new IOException());
+            }
+        }, 2);
+        output.startDocument(null);
+        output.processPageContent(MPage.newInstance("test.pdf", 1, 612d, 792d));
+        output.endDocument(null);
+    }
+
+    private static class RecordingOutput implements ParserOutputWriter {
+
+        private final List<String> calls = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+
+        RecordingOutput(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void startDocument(PDDocument document) {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            calls.add("startDocument");
+        }
+
+        @Override
+        public void startPage(PDPage page) {
+            calls.add("startPage");
+        }
+
+        @Override
+        public void processPageContent(MPage page) {
+            calls.add("page " + page.getPageNumber());
+        }
+
+        @Override
+        public void endPage(PDPage page) {
+            calls.add("endPage");
+        }
+
+        @Override
+        public void endDocument(PDDocument document) {
+            calls.add("endDocument");
+        }
+
+        @Override
+        public void abort() {
+            calls.add("abort");
+        }
+    }
+}
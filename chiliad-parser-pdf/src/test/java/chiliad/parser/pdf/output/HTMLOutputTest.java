@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class HTMLOutputTest {
+
+    @Test
+    public void testTokenTextIsEscaped() {
+        MPage page = MPage.newInstance("test.pdf", 1, 612d, 792d);
+        MToken token = new MToken();
+        token.setText("<b>'15.6\" & more'</b>");
+        token.setNonStrokingArgb(0xFF000000);
+        token.setX(72d);
+        token.setY(100d);
+        token.setWidth(50d);
+        token.setHeight(10d);
+        token.setFontSizeInPt(12d);
+        token.setFontWeight(400d);
+        page.add(token);
+        StringWriter writer = new StringWriter();
+        HTMLOutput output = new HTMLOutput(writer);
+        output.processPageContent(page);
+        output.endDocument(null);
+
+        String html = writer.toString();
+        assertThat(html, containsString("style='top: 120px; left: 96px;  font-weight: 400; font-size: 12.0pt; color: rgba(0,0,0,1);' >"
+                + "&lt;b&gt;&#39;15.6&quot; &amp; more&#39;&lt;/b&gt;</span></p:token>"));
+        assertThat(html, containsString("title='MToken{text=&lt;b&gt;&#39;15.6&quot; &amp; more&#39;&lt;/b&gt;, x=72.0,"));
+    }
+}
@@ -17,11 +17,21 @@ package chiliad.parser.pdf.output;
 
 import static org.hamcrest.CoreMatchers.is;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.image.ImageExtractor;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.extractor.vectorgraphics.SVGBasedExtractor;
+import chiliad.parser.pdf.input.ClasspathSource;
 import chiliad.parser.pdf.model.MPage;
 import chiliad.parser.pdf.utils.IOUtils;
 
@@ -30,8 +40,17 @@ public class JSONOutputIT {
 	final static Logger LOG = LoggerFactory.getLogger(JSONOutputIT.class);
 
 	@Test
-	public void testTryFindingTable() {
-		MPage[] pages = IOUtils.readJSON(ClassLoader.getSystemResourceAsStream("dell-test-pages_pages_1_3.json"), MPage[].class);
+	public void testTryFindingTable() throws Exception {
+		StringWriter json = new StringWriter();
+		ChiliadPDFParser parser = new ChiliadPDFParser(new ClasspathSource("dell-test-pages.pdf"), new JSONOutput(json),
+				new TextExtractor(), new ImageExtractor(), new SVGBasedExtractor());
+		parser.setPages(PageSet.range(1, 3));
+		try {
+			parser.parse();
+		} finally {
+			parser.shutDown();
+		}
+		MPage[] pages = IOUtils.readJSON(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)), MPage[].class);
 		Assert.assertThat(pages.length, is(3));
 	}
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import chiliad.parser.pdf.model.MImage;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class JSONOutputTest {
+
+    @Test
+    public void testPagesAreWrittenAsTheirBeanSerialization() throws Exception {
+        MPage page = createPage();
+        StringWriter writer = new StringWriter();
+        JSONOutput output = new JSONOutput(writer, true);
+        output.startDocument(null);
+        output.processPageContent(page);
+        output.processPageContent(page);
+        output.endDocument(null);
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(writer.toString(), not(containsString("\n")));
+        JsonNode expected = mapper.readTree(mapper.writeValueAsString(new MPage[]{page, page}));
+        assertThat(mapper.readTree(writer.toString()), is(expected));
+    }
+
+    @Test
+    public void testDefaultOutputIsIndented() throws Exception {
+        StringWriter writer = new StringWriter();
+        JSONOutput output = new JSONOutput(writer);
+        output.startDocument(null);
+        output.processPageContent(createPage());
+        output.endDocument(null);
+
+        assertThat(writer.toString(), containsString("\n  \"pageNumber\" : 2,"));
+        assertThat(writer.toString(), not(containsString("\"pageNumber\":2")));
+    }
+
+    private static MPage createPage() {
+        MPage page = MPage.newInstance("test.pdf", 2, 612d, 792d);
+        MToken token = new MToken();
+        token.setText("Hello \"world\"");
+        token.setStrokingArgb(0xFF000000);
+        token.setX(10d);
+        token.setY(20.5d);
+        token.setWidth(30d);
+        token.setHeight(12d);
+        token.setFontSizeInPt(12d);
+        token.setFontName("Helvetica");
+        page.add(token);
+        MImage image = new MImage();
+        image.setImageName("Im1");
+        image.setX(1d);
+        image.setY(2d);
+        image.setWidth(3d);
+        image.setHeight(4d);
+        image.setImageBytes(new byte[]{1, 2, 3});
+        page.add(image);
+        return page;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.output;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import chiliad.parser.pdf.model.MPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class NDJSONOutputTest {
+
+    @Test
+    public void testEveryPageIsALineFlushedWhenWritten() throws Exception {
+        StringWriter writer = new StringWriter();
+        NDJSONOutput output = new NDJSONOutput(writer);
+        output.startDocument(null);
+        output.processPageContent(MPage.newInstance("test.pdf", 1, 612d, 792d));
+        output.processPageContent(MPage.newInstance("test.pdf", 2, 612d, 792d));
+
+        String[] lines = writer.toString().split("\n", -1);
+        assertThat("Lines", lines.length, is(3));
+        assertThat("Last line", lines[2], is(""));
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(mapper.readValue(lines[0], MPage.class).getPageNumber(), is(1));
+        assertThat(mapper.readValue(lines[1], MPage.class).getPageNumber(), is(2));
+
+        output.endDocument(null);
+        assertThat("Nothing is written at the end", writer.toString().split("\n", -1).length, is(3));
+    }
+}
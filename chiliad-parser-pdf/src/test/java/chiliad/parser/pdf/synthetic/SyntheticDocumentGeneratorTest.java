@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Kovacs Peter Tibor
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package chiliad.parser.pdf.synthetic;
+
+import chiliad.parser.pdf.ChiliadPDFParser;
+import chiliad.parser.pdf.PageSet;
+import chiliad.parser.pdf.extractor.text.TextExtractor;
+import chiliad.parser.pdf.input.StreamSource;
+import chiliad.parser.pdf.model.MPage;
+import chiliad.parser.pdf.model.MToken;
+import chiliad.parser.pdf.output.EmptyOutput;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import org.junit.Test;
+
+public class SyntheticDocumentGeneratorTest {
+
+    @Test
+    public void testSameSeedGivesSameDocument() throws Exception {
+        SyntheticDocumentGenerator generator = newGenerator(7);
+
+        byte[] first = generate(generator);
+        byte[] second = generate(generator);
+        generator.setSeed(8);
+        byte[] other = generate(generator);
+
+        assertThat(second, is(first));
+        assertThat(other, is(not(first)));
+    }
+
+    @Test
+    public void testGlyphsPerPage() throws Exception {
+        SyntheticDocumentGenerator generator = newGenerator(7);
+        generator.setGlyphsPerPage(500);
+        // the innermost form draws its own text
+        generator.setFormDepth(0);
+
+        List<MPage> pages = extract(generate(generator), -1);
+
+        assertThat(pages, hasSize(2));
+        for (MPage page : pages) {
+            int glyphs = 0;
+            for (MToken token : page.getTokens()) {
+                glyphs += token.getText().replace(" ", "").length();
+            }
+            assertThat(glyphs, is(500));
+        }
+    }
+
+    @Test
+    public void testNestedFormsAreTruncatedByTheDepthLimit() throws Exception {
+        SyntheticDocumentGenerator generator = newGenerator(7);
+        generator.setGlyphsPerPage(0);
+        generator.setFormDepth(4);
+
+        byte[] document = generate(generator);
+
+        assertThat(extract(document, -1).get(0).getTruncation(), is(nullValue()));
+        assertThat(extract(document, 2).get(0).getTruncation(), is("xobject_depth"));
+    }
+
+    private static SyntheticDocumentGenerator newGenerator(long seed) {
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator();
+        generator.setSeed(seed);
+        generator.setPages(2);
+        generator.setGlyphsPerPage(300);
+        generator.setFonts(3);
+        generator.setImagesPerPage(2);
+        generator.setImageSize(16);
+        generator.setPathSegmentsPerPage(40);
+        generator.setFormDepth(2);
+        generator.setInlineImagesPerPage(1);
+        return generator;
+    }
+
+    private static byte[] generate(SyntheticDocumentGenerator generator) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.generate(out);
+        return out.toByteArray();
+    }
+
+    private static List<MPage> extract(byte[] document, int maxXObjectDepth) throws Exception {
+        ChiliadPDFParser parser = new ChiliadPDFParser(new StreamSource("synthetic", document), new EmptyOutput(), new TextExtractor());
+        parser.setPages(PageSet.all());
+        parser.setMaxXObjectDepth(maxXObjectDepth);
+        try {
+            return parser.stream().collect(Collectors.toList());
+        } finally {
+            parser.shutDown();
+        }
+    }
+}